@@ -0,0 +1,612 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.cache;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps rendered images on disk across restarts.
+ * Renders are appended as raw little endian ARGB ints to a data file and read back through a memory mapping of it, so a hit is a
+ * single copy with no image decoding. The data file grows in fixed steps and is only mapped again when it grows.
+ * Invalidations are appended as tombstones. An index of the data file is written on flush, close and compaction,
+ * records appended after it are recovered by scanning their headers on open.
+ * When a render does not fit under the size limit it is rejected and the least recently used renders are dropped in
+ * the background, copying the remaining ones into a new file.
+ */
+public class DiskRenderCache implements Closeable {
+
+    public static final String DATA_FILE_NAME = "renders.dat";
+    public static final String INDEX_FILE_NAME = "renders.idx";
+    public static final double COMPACTION_TARGET = 0.75;
+    public static final int GROWTH_BYTES = 16 * 1024 * 1024;
+
+    private static final int RECORD_MAGIC = 0x424D5232;
+    private static final int TOMBSTONE_MAGIC = 0x424D5432;
+    private static final int INDEX_MAGIC = 0x424D5249;
+    private static final int INDEX_VERSION = 2;
+    private static final int HEADER_BYTES = (4 + RenderKey.SERIALIZED_BYTES + 7) & ~7;
+    private static final int INDEX_ENTRY_BYTES = RenderKey.SERIALIZED_BYTES + 8;
+    private static final Consumer<ByteBuffer> UNMAPPER = createUnmapper();
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final long maximumBytes;
+    private final Map<RenderKey, Entry> entries;
+    private final AtomicLong clock;
+    private final ReadWriteLock lock;
+    private final RenderCacheStatistics statistics;
+    private final Executor compactionExecutor;
+    private final AtomicBoolean compactionScheduled;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long capacity;
+    private long fileBytes;
+    private long liveBytes;
+
+    public DiskRenderCache(File directory, long maximumBytes) throws IOException {
+        this(directory, maximumBytes, ForkJoinPool.commonPool());
+    }
+
+    public DiskRenderCache(File directory, long maximumBytes, Executor compactionExecutor) throws IOException {
+        if (maximumBytes < 0 || maximumBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maximumBytes must be between 0 and " + Integer.MAX_VALUE);
+        }
+        Files.createDirectories(directory.toPath());
+        this.dataFile = new File(directory, DATA_FILE_NAME).toPath();
+        this.indexFile = new File(directory, INDEX_FILE_NAME).toPath();
+        this.maximumBytes = maximumBytes;
+        this.entries = new ConcurrentHashMap<>();
+        this.clock = new AtomicLong();
+        this.lock = new ReentrantReadWriteLock();
+        this.statistics = new RenderCacheStatistics();
+        this.compactionExecutor = compactionExecutor;
+        this.compactionScheduled = new AtomicBoolean();
+        this.channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.fileBytes = channel.size();
+        this.liveBytes = 0;
+        long position = readIndex();
+        scan(position);
+        this.capacity = fileBytes;
+        map();
+    }
+
+    public BufferedImage get(RenderKey key) throws IOException {
+        int[] pixels = getPixels(key);
+        if (pixels == null) {
+            return null;
+        }
+        BufferedImage image = new BufferedImage(key.getWidth(), key.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        image.getRaster().setDataElements(0, 0, key.getWidth(), key.getHeight(), pixels);
+        return image;
+    }
+
+    public void put(RenderKey key, BufferedImage image) throws IOException {
+        if (image.getWidth() != key.getWidth() || image.getHeight() != key.getHeight()) {
+            throw new IllegalArgumentException("Image size does not match the render key");
+        }
+        int[] pixels;
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+            pixels = (int[]) image.getRaster().getDataElements(0, 0, image.getWidth(), image.getHeight(), null);
+        } else {
+            pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        }
+        put(key, pixels);
+    }
+
+    int[] getPixels(RenderKey key) throws IOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                statistics.addMiss();
+                return null;
+            }
+            entry.lastAccess = clock.incrementAndGet();
+            ByteBuffer buffer = mapped.duplicate();
+            buffer.position((int) entry.offset + HEADER_BYTES);
+            int[] pixels = new int[key.getWidth() * key.getHeight()];
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(pixels);
+            statistics.addHit();
+            return pixels;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(RenderKey key, int[] pixels) throws IOException {
+        long recordBytes = HEADER_BYTES + pixels.length * 4L;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (recordBytes > maximumBytes) {
+                statistics.addRejection();
+                return;
+            }
+            if (fileBytes + recordBytes > maximumBytes) {
+                statistics.addRejection();
+                scheduleCompaction(recordBytes);
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) recordBytes);
+            buffer.putInt(RECORD_MAGIC);
+            key.write(buffer);
+            buffer.position(HEADER_BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(pixels);
+            buffer.rewind();
+            long offset = fileBytes;
+            ensureCapacity(offset + recordBytes);
+            writeFully(channel, buffer, offset);
+            fileBytes += recordBytes;
+            Entry previous = entries.put(key, new Entry(offset, recordBytes, clock.incrementAndGet()));
+            if (previous != null) {
+                liveBytes -= previous.length;
+            }
+            liveBytes += recordBytes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidate(RenderKey key) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Entry entry = entries.remove(key);
+            if (entry == null) {
+                return;
+            }
+            liveBytes -= entry.length;
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+            buffer.putInt(TOMBSTONE_MAGIC);
+            key.write(buffer);
+            buffer.clear();
+            ensureCapacity(fileBytes + HEADER_BYTES);
+            writeFully(channel, buffer, fileBytes);
+            fileBytes += HEADER_BYTES;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidateAll() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            entries.clear();
+            unmap();
+            channel.truncate(0);
+            capacity = 0;
+            fileBytes = 0;
+            liveBytes = 0;
+            Files.deleteIfExists(indexFile);
+            map();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the data file with only the live renders, dropping the least recently used ones until the file is
+     * no larger than the given size.
+     */
+    public void compact(long targetBytes) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            List<Map.Entry<RenderKey, Entry>> live = new ArrayList<>(entries.entrySet());
+            live.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            int start = 0;
+            while (liveBytes > targetBytes && start < live.size()) {
+                Map.Entry<RenderKey, Entry> evicted = live.get(start++);
+                entries.remove(evicted.getKey());
+                liveBytes -= evicted.getValue().length;
+                statistics.addEviction();
+            }
+            Path tempFile = dataFile.resolveSibling(DATA_FILE_NAME + ".tmp");
+            long[] offsets = new long[live.size()];
+            long position = 0;
+            try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (int i = start; i < live.size(); i++) {
+                    Entry entry = live.get(i).getValue();
+                    long transferred = 0;
+                    while (transferred < entry.length) {
+                        transferred += channel.transferTo(entry.offset + transferred, entry.length - transferred, out);
+                    }
+                    offsets[i] = position;
+                    position += entry.length;
+                }
+                out.force(true);
+            }
+            unmap();
+            FileChannel oldChannel = channel;
+            channel = null;
+            try {
+                oldChannel.close();
+                Files.deleteIfExists(indexFile);
+                Files.move(tempFile, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                    open();
+                    writeIndex();
+                } catch (IOException | RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            for (int i = start; i < live.size(); i++) {
+                live.get(i).getValue().offset = offsets[i];
+            }
+            capacity = position;
+            fileBytes = position;
+            open();
+            writeIndex();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            channel.force(true);
+            writeIndex();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            unmap();
+            channel.truncate(fileBytes);
+            channel.force(true);
+            writeIndex();
+            channel.close();
+            channel = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getFileBytes() {
+        lock.readLock().lock();
+        try {
+            return fileBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    public RenderCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel == null) {
+            throw new IOException("DiskRenderCache is closed");
+        }
+    }
+
+    /**
+     * Compacts the data file on the compaction executor, at most one compaction is scheduled at a time.
+     */
+    private void scheduleCompaction(long recordBytes) {
+        if (!compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactionExecutor.execute(() -> {
+                try {
+                    compact((long) (maximumBytes * COMPACTION_TARGET) - recordBytes);
+                } catch (IOException ignore) {
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            compactionScheduled.set(false);
+        }
+    }
+
+    /**
+     * Grows the data file in steps of {@link #GROWTH_BYTES} so it does not have to be mapped again for every write.
+     * Must be called while holding the write lock.
+     */
+    private void ensureCapacity(long bytes) throws IOException {
+        if (bytes <= capacity) {
+            return;
+        }
+        long newCapacity = Math.max(bytes, Math.min(maximumBytes, (bytes + GROWTH_BYTES - 1) / GROWTH_BYTES * GROWTH_BYTES));
+        unmap();
+        writeFully(channel, ByteBuffer.allocate(1), newCapacity - 1);
+        capacity = newCapacity;
+        map();
+    }
+
+    /**
+     * Reopens the data file after compaction replaced it, or after a failed compaction left the old one in place.
+     */
+    private void open() throws IOException {
+        FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.channel = channel;
+    }
+
+    private void map() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+    }
+
+    /**
+     * Releases the current mapping right away instead of waiting for it to be collected, some platforms cannot
+     * truncate or replace a file while it is mapped. Must be called while holding the write lock.
+     */
+    private void unmap() {
+        MappedByteBuffer mapped = this.mapped;
+        this.mapped = null;
+        if (mapped != null) {
+            UNMAPPER.accept(mapped);
+        }
+    }
+
+    /**
+     * Loads the index, checking that every indexed offset still holds a record for the same key.
+     */
+    private long readIndex() throws IOException {
+        if (!Files.exists(indexFile)) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        if (buffer.remaining() < 20 || buffer.getInt() != INDEX_MAGIC || buffer.getInt() != INDEX_VERSION) {
+            return 0;
+        }
+        long position = buffer.getLong();
+        int count = buffer.getInt();
+        if (position > fileBytes || count < 0 || buffer.remaining() != (long) count * INDEX_ENTRY_BYTES) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            RenderKey key;
+            try {
+                key = RenderKey.read(buffer);
+            } catch (IllegalArgumentException e) {
+                entries.clear();
+                liveBytes = 0;
+                return 0;
+            }
+            long offset = buffer.getLong();
+            long length = HEADER_BYTES + (long) key.getWidth() * key.getHeight() * 4;
+            if (offset < 0 || offset + length > position || !isRecord(header, offset, key)) {
+                entries.clear();
+                liveBytes = 0;
+                return 0;
+            }
+            Entry previous = entries.put(key, new Entry(offset, length, clock.incrementAndGet()));
+            if (previous != null) {
+                liveBytes -= previous.length;
+            }
+            liveBytes += length;
+        }
+        return position;
+    }
+
+    private boolean isRecord(ByteBuffer header, long offset, RenderKey key) throws IOException {
+        header.clear();
+        if (!readFully(channel, header, offset)) {
+            return false;
+        }
+        header.flip();
+        if (header.getInt() != RECORD_MAGIC) {
+            return false;
+        }
+        try {
+            return key.equals(RenderKey.read(header));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void scan(long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position < fileBytes) {
+            header.clear();
+            if (!readFully(channel, header, position)) {
+                break;
+            }
+            header.flip();
+            int magic = header.getInt();
+            if (magic != RECORD_MAGIC && magic != TOMBSTONE_MAGIC) {
+                break;
+            }
+            RenderKey key;
+            try {
+                key = RenderKey.read(header);
+            } catch (IllegalArgumentException e) {
+                break;
+            }
+            if (magic == TOMBSTONE_MAGIC) {
+                Entry previous = entries.remove(key);
+                if (previous != null) {
+                    liveBytes -= previous.length;
+                }
+                position += HEADER_BYTES;
+                continue;
+            }
+            long length = HEADER_BYTES + (long) key.getWidth() * key.getHeight() * 4;
+            if (key.getWidth() <= 0 || key.getHeight() <= 0 || position + length > fileBytes) {
+                break;
+            }
+            Entry previous = entries.put(key, new Entry(position, length, clock.incrementAndGet()));
+            if (previous != null) {
+                liveBytes -= previous.length;
+            }
+            liveBytes += length;
+            position += length;
+        }
+        if (position < fileBytes) {
+            channel.truncate(position);
+            fileBytes = position;
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        List<Map.Entry<RenderKey, Entry>> live = new ArrayList<>(entries.entrySet());
+        live.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        ByteBuffer buffer = ByteBuffer.allocate(20 + live.size() * INDEX_ENTRY_BYTES);
+        buffer.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(fileBytes).putInt(live.size());
+        for (Map.Entry<RenderKey, Entry> entry : live) {
+            entry.getKey().write(buffer);
+            buffer.putLong(entry.getValue().offset);
+        }
+        buffer.flip();
+        Path tempFile = indexFile.resolveSibling(INDEX_FILE_NAME + ".tmp");
+        try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, buffer, 0);
+            out.force(true);
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns a function releasing a mapped buffer through the JDK internals, or one doing nothing if they are not
+     * accessible, in which case mappings are released when they are collected.
+     */
+    private static Consumer<ByteBuffer> createUnmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> {
+                try {
+                    invokeCleaner.invoke(unsafe, buffer);
+                } catch (ReflectiveOperationException ignore) {
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException ignore) {
+        }
+        try {
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                try {
+                    Object bufferCleaner = cleaner.invoke(buffer);
+                    if (bufferCleaner != null) {
+                        clean.invoke(bufferCleaner);
+                    }
+                } catch (ReflectiveOperationException ignore) {
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException ignore) {
+        }
+        return buffer -> {};
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static class Entry {
+
+        private long offset;
+        private final long length;
+        private volatile long lastAccess;
+
+        private Entry(long offset, long length, long lastAccess) {
+            this.offset = offset;
+            this.length = length;
+            this.lastAccess = lastAccess;
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.cache;
+
+class FrequencySketch {
+
+    private static final int MAX_COUNT = 15;
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(64, expectedEntries * 4) - 1) << 1;
+        this.counters = new byte[4][width];
+        this.mask = width - 1;
+        this.sampleSize = width * 10;
+        this.additions = 0;
+    }
+
+    public void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < counters.length; i++) {
+            int index = indexOf(hash, i);
+            if (counters[i][index] < MAX_COUNT) {
+                counters[i][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    public int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < counters.length; i++) {
+            frequency = Math.min(frequency, counters[i][indexOf(hash, i)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (byte[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash + row) * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & mask;
+    }
+
+}
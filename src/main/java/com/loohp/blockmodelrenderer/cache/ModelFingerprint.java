@@ -0,0 +1,99 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.cache;
+
+import com.loohp.blockmodelrenderer.blending.BlendingModes;
+import com.loohp.blockmodelrenderer.render.Face;
+import com.loohp.blockmodelrenderer.render.Hexahedron;
+import com.loohp.blockmodelrenderer.render.Model;
+import com.loohp.blockmodelrenderer.render.Point3D;
+import com.loohp.blockmodelrenderer.utils.HashUtils;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Structural hashes of models covering geometry, textures, overlays, blending modes and lighting.
+ * Textures are hashed through {@link HashUtils}, so textures must not be modified after a model has been fingerprinted.
+ */
+public class ModelFingerprint {
+
+    public static long of(Model model) {
+        long hash = 1;
+        for (Hexahedron hexahedron : model.getComponents()) {
+            hash = mix(hash, of(hexahedron));
+        }
+        return finish(hash);
+    }
+
+    public static long of(Hexahedron hexahedron) {
+        long hash = 1;
+        for (Face face : hexahedron.getByDirectionOrder()) {
+            hash = mix(hash, face == null ? 0 : of(face));
+        }
+        return finish(hash);
+    }
+
+    public static long of(Face face) {
+        long hash = 1;
+        for (Point3D point : face.getPoints()) {
+            hash = mix(hash, Double.doubleToLongBits(point.x));
+            hash = mix(hash, Double.doubleToLongBits(point.y));
+            hash = mix(hash, Double.doubleToLongBits(point.z));
+        }
+        hash = mix(hash, Double.doubleToLongBits(face.getLightRatio()));
+        hash = mix(hash, face.getPriority());
+        hash = mix(hash, face.getCullface() == null ? 0 : 1);
+        if (face.isDoubleSided()) {
+            hash = mix(hash, 2);
+        }
+        hash = mix(hash, of(face.getImage()));
+        BufferedImage[] overlay = face.getOverlay();
+        BlendingModes[] overlayBlendingMode = face.getOverlayBlendingMode();
+        if (overlay != null) {
+            for (int i = 0; i < overlay.length; i++) {
+                hash = mix(hash, of(overlay[i]));
+                BlendingModes blendingModes = overlayBlendingMode == null || i >= overlayBlendingMode.length ? null : overlayBlendingMode[i];
+                hash = mix(hash, blendingModes == null ? -1 : of(blendingModes));
+            }
+        }
+        return finish(hash);
+    }
+
+    public static long of(BufferedImage image) {
+        return image == null ? 0 : HashUtils.hash64(image);
+    }
+
+    public static long of(BlendingModes blendingModes) {
+        long hash = mix(1, blendingModes.getSrcColorComposite().ordinal());
+        hash = mix(hash, blendingModes.getDesColorComposite().ordinal());
+        hash = mix(hash, blendingModes.getSrcAlphaComposite().ordinal());
+        return mix(hash, blendingModes.getDesAlphaComposite().ordinal());
+    }
+
+    private static long mix(long hash, long value) {
+        return HashUtils.mix(hash, value);
+    }
+
+    private static long finish(long hash) {
+        return HashUtils.fmix64(hash);
+    }
+
+}
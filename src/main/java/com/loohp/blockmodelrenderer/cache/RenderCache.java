@@ -0,0 +1,257 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.cache;
+
+import com.loohp.blockmodelrenderer.render.Model;
+import com.loohp.blockmodelrenderer.render.RenderOptions;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Caches finished renders by model fingerprint and render parameters, bounded by an estimated byte size.
+ * Concurrent requests for the same key share a single render. When the cache is full a new result is only admitted
+ * if it has been requested more often than the entries it would evict.
+ * Returned images are always fresh copies and can be modified freely.
+ */
+public class RenderCache {
+
+    public static final int ENTRY_OVERHEAD = 128;
+    public static final int DEFAULT_EXPECTED_ENTRIES = 1024;
+
+    private final long maximumBytes;
+    private final LinkedHashMap<RenderKey, int[]> entries;
+    private final Map<RenderKey, CompletableFuture<int[]>> loading;
+    private final FrequencySketch sketch;
+    private final RenderCacheStatistics statistics;
+    private long estimatedBytes;
+    private volatile DiskRenderCache diskCache;
+
+    public RenderCache(long maximumBytes) {
+        this(maximumBytes, DEFAULT_EXPECTED_ENTRIES);
+    }
+
+    public RenderCache(long maximumBytes, int expectedEntries) {
+        if (maximumBytes < 0) {
+            throw new IllegalArgumentException("maximumBytes cannot be negative");
+        }
+        this.maximumBytes = maximumBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75F, true);
+        this.loading = new ConcurrentHashMap<>();
+        this.sketch = new FrequencySketch(expectedEntries);
+        this.statistics = new RenderCacheStatistics();
+        this.estimatedBytes = 0;
+        this.diskCache = null;
+    }
+
+    public DiskRenderCache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * Sets a disk cache to look up renders missing from memory and to store new renders in.
+     * Renders found on disk are counted as misses here and as hits in the statistics of the disk cache.
+     */
+    public RenderCache setDiskCache(DiskRenderCache diskCache) {
+        this.diskCache = diskCache;
+        return this;
+    }
+
+    public BufferedImage render(Model model, int width, int height, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        try {
+            return renderAsync(model, width, height, baseTransform, options, service).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<BufferedImage> renderAsync(Model model, int width, int height, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return renderAsync(RenderKey.of(model, width, height, baseTransform, options), model, baseTransform, options, service);
+    }
+
+    /**
+     * Renders the model, or returns a copy of the cached result for the key.
+     * The key must have been created from the same model, transform and options.
+     * Cancelling the returned future does not stop a render which other callers may be waiting on.
+     */
+    public CompletableFuture<BufferedImage> renderAsync(RenderKey key, Model model, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        int[] pixels = getPixels(key, true);
+        if (pixels != null) {
+            statistics.addHit();
+            return CompletableFuture.completedFuture(toImage(key, pixels));
+        }
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        CompletableFuture<int[]> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            statistics.addSharedLoad();
+            return existing.thenApply(data -> toImage(key, data));
+        }
+        pixels = getPixels(key, false);
+        if (pixels != null) {
+            loading.remove(key, future);
+            future.complete(pixels);
+            statistics.addHit();
+            return CompletableFuture.completedFuture(toImage(key, pixels));
+        }
+        statistics.addMiss();
+        DiskRenderCache diskCache = this.diskCache;
+        if (diskCache != null) {
+            try {
+                pixels = diskCache.getPixels(key);
+            } catch (IOException e) {
+                diskCache.getStatistics().addLoadFailure();
+            }
+            if (pixels != null) {
+                put(key, pixels);
+                loading.remove(key, future);
+                future.complete(pixels);
+                return CompletableFuture.completedFuture(toImage(key, pixels));
+            }
+        }
+        try {
+            BufferedImage image = new BufferedImage(key.getWidth(), key.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            model.renderAsync(image, baseTransform, options, service).whenComplete((result, throwable) -> {
+                if (throwable == null) {
+                    int[] data = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+                    put(key, data);
+                    loading.remove(key, future);
+                    future.complete(data);
+                    if (diskCache != null) {
+                        try {
+                            diskCache.put(key, data);
+                        } catch (IOException e) {
+                            diskCache.getStatistics().addRejection();
+                        }
+                    }
+                } else {
+                    statistics.addLoadFailure();
+                    loading.remove(key, future);
+                    future.completeExceptionally(throwable);
+                }
+            });
+        } catch (Throwable e) {
+            statistics.addLoadFailure();
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future.thenApply(data -> toImage(key, data));
+    }
+
+    public BufferedImage getIfPresent(RenderKey key) {
+        int[] pixels = getPixels(key, false);
+        return pixels == null ? null : toImage(key, pixels);
+    }
+
+    public synchronized void invalidate(RenderKey key) {
+        int[] pixels = entries.remove(key);
+        if (pixels != null) {
+            estimatedBytes -= weigh(pixels);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        estimatedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    public RenderCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    private synchronized int[] getPixels(RenderKey key, boolean record) {
+        if (record) {
+            sketch.increment(key.hashCode());
+        }
+        return entries.get(key);
+    }
+
+    private synchronized void put(RenderKey key, int[] pixels) {
+        long weight = weigh(pixels);
+        int[] previous = entries.remove(key);
+        if (previous != null) {
+            estimatedBytes -= weigh(previous);
+        }
+        if (weight > maximumBytes) {
+            statistics.addRejection();
+            return;
+        }
+        if (estimatedBytes + weight > maximumBytes) {
+            int frequency = sketch.frequency(key.hashCode());
+            long freed = 0;
+            List<RenderKey> victims = new ArrayList<>();
+            Iterator<Map.Entry<RenderKey, int[]>> itr = entries.entrySet().iterator();
+            while (estimatedBytes - freed + weight > maximumBytes && itr.hasNext()) {
+                Map.Entry<RenderKey, int[]> entry = itr.next();
+                if (sketch.frequency(entry.getKey().hashCode()) >= frequency) {
+                    statistics.addRejection();
+                    return;
+                }
+                victims.add(entry.getKey());
+                freed += weigh(entry.getValue());
+            }
+            for (RenderKey victim : victims) {
+                entries.remove(victim);
+                statistics.addEviction();
+            }
+            estimatedBytes -= freed;
+        }
+        entries.put(key, pixels);
+        estimatedBytes += weight;
+    }
+
+    private static long weigh(int[] pixels) {
+        return pixels.length * 4L + ENTRY_OVERHEAD;
+    }
+
+    private static BufferedImage toImage(RenderKey key, int[] pixels) {
+        BufferedImage image = new BufferedImage(key.getWidth(), key.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        image.getRaster().setDataElements(0, 0, key.getWidth(), key.getHeight(), pixels);
+        return image;
+    }
+
+}
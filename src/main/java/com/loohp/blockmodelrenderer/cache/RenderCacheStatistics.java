@@ -0,0 +1,118 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class RenderCacheStatistics {
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder sharedLoads;
+    private final LongAdder loadFailures;
+    private final LongAdder evictions;
+    private final LongAdder rejections;
+
+    public RenderCacheStatistics() {
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.sharedLoads = new LongAdder();
+        this.loadFailures = new LongAdder();
+        this.evictions = new LongAdder();
+        this.rejections = new LongAdder();
+    }
+
+    void addHit() {
+        hits.increment();
+    }
+
+    void addMiss() {
+        misses.increment();
+    }
+
+    void addSharedLoad() {
+        sharedLoads.increment();
+    }
+
+    void addLoadFailure() {
+        loadFailures.increment();
+    }
+
+    void addEviction() {
+        evictions.increment();
+    }
+
+    void addRejection() {
+        rejections.increment();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getSharedLoads() {
+        return sharedLoads.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public double getHitRate() {
+        long hits = getHits();
+        long requests = hits + getMisses() + getSharedLoads();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        sharedLoads.reset();
+        loadFailures.reset();
+        evictions.reset();
+        rejections.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "RenderCacheStatistics{" +
+            "hits=" + getHits() +
+            ", misses=" + getMisses() +
+            ", sharedLoads=" + getSharedLoads() +
+            ", loadFailures=" + getLoadFailures() +
+            ", evictions=" + getEvictions() +
+            ", rejections=" + getRejections() +
+            '}';
+    }
+
+}
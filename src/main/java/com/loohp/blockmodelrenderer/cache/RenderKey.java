@@ -0,0 +1,242 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.cache;
+
+import com.loohp.blockmodelrenderer.blending.BlendingMode;
+import com.loohp.blockmodelrenderer.render.Model;
+import com.loohp.blockmodelrenderer.render.RasterizationMode;
+import com.loohp.blockmodelrenderer.render.RenderOptions;
+import com.loohp.blockmodelrenderer.render.TextureFilter;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public final class RenderKey {
+
+    static final int SERIALIZED_BYTES = 8 + 4 + 4 + 6 * 8 + 1 + 4 + 1 + 1 + 4 + 1 + 1 + 1 + 1 + 1 + 4 * 4;
+
+    private static final BlendingMode[] BLENDING_MODES = BlendingMode.values();
+    private static final RasterizationMode[] RASTERIZATION_MODES = RasterizationMode.values();
+    private static final TextureFilter[] TEXTURE_FILTERS = TextureFilter.values();
+
+    public static RenderKey of(Model model, int width, int height, AffineTransform baseTransform, RenderOptions options) {
+        return new RenderKey(ModelFingerprint.of(model), width, height, baseTransform, options);
+    }
+
+    private final long modelFingerprint;
+    private final int width;
+    private final int height;
+    private final double[] transform;
+    private final boolean useZBuffer;
+    private final BlendingMode srcColorComposite;
+    private final BlendingMode desColorComposite;
+    private final BlendingMode srcAlphaComposite;
+    private final BlendingMode desAlphaComposite;
+    private final RasterizationMode rasterizationMode;
+    private final boolean frontToBack;
+    private final int supersampling;
+    private final boolean edgeAntialiasing;
+    private final boolean mipmapping;
+    private final TextureFilter textureFilter;
+    private final boolean backFaceCulling;
+    private final Rectangle clip;
+    private final long optionsHash;
+    private final int hashCode;
+
+    public RenderKey(long modelFingerprint, int width, int height, AffineTransform baseTransform, RenderOptions options) {
+        this(modelFingerprint, width, height, getMatrix(baseTransform), options.isUseZBuffer(), options.getBlendingMode().getSrcColorComposite(), options.getBlendingMode().getDesColorComposite(), options.getBlendingMode().getSrcAlphaComposite(), options.getBlendingMode().getDesAlphaComposite(), options.getRasterizationMode(), options.isFrontToBack(), options.getSupersampling(), options.isEdgeAntialiasing(), options.isMipmapping(), options.getTextureFilter(), options.isBackFaceCulling(), options.getClip() == null ? null : new Rectangle(options.getClip()));
+    }
+
+    private RenderKey(long modelFingerprint, int width, int height, double[] transform, boolean useZBuffer, BlendingMode srcColorComposite, BlendingMode desColorComposite, BlendingMode srcAlphaComposite, BlendingMode desAlphaComposite, RasterizationMode rasterizationMode, boolean frontToBack, int supersampling, boolean edgeAntialiasing, boolean mipmapping, TextureFilter textureFilter, boolean backFaceCulling, Rectangle clip) {
+        this.modelFingerprint = modelFingerprint;
+        this.width = width;
+        this.height = height;
+        this.transform = transform;
+        this.useZBuffer = useZBuffer;
+        this.srcColorComposite = srcColorComposite;
+        this.desColorComposite = desColorComposite;
+        this.srcAlphaComposite = srcAlphaComposite;
+        this.desAlphaComposite = desAlphaComposite;
+        this.rasterizationMode = rasterizationMode;
+        this.frontToBack = frontToBack;
+        this.supersampling = supersampling;
+        this.edgeAntialiasing = edgeAntialiasing;
+        this.mipmapping = mipmapping;
+        this.textureFilter = textureFilter;
+        this.backFaceCulling = backFaceCulling;
+        this.clip = clip;
+        this.optionsHash = hashOptions();
+        int hashCode = Long.hashCode(modelFingerprint);
+        hashCode = hashCode * 31 + width;
+        hashCode = hashCode * 31 + height;
+        hashCode = hashCode * 31 + Arrays.hashCode(transform);
+        hashCode = hashCode * 31 + Long.hashCode(optionsHash);
+        hashCode = hashCode * 31 + (clip == null ? 0 : clip.hashCode());
+        this.hashCode = hashCode;
+    }
+
+    private static double[] getMatrix(AffineTransform baseTransform) {
+        double[] transform = new double[6];
+        baseTransform.getMatrix(transform);
+        return transform;
+    }
+
+    /**
+     * Only used for hashing, equality compares every option.
+     */
+    private long hashOptions() {
+        long hash = useZBuffer ? 1 : 0;
+        hash = hash * 31 + srcColorComposite.ordinal();
+        hash = hash * 31 + desColorComposite.ordinal();
+        hash = hash * 31 + srcAlphaComposite.ordinal();
+        hash = hash * 31 + desAlphaComposite.ordinal();
+        hash = hash * 31 + rasterizationMode.ordinal();
+        hash = hash * 31 + (frontToBack ? 1 : 0);
+        hash = hash * 31 + supersampling;
+        hash = hash * 31 + (edgeAntialiasing ? 1 : 0);
+        hash = hash * 31 + (mipmapping ? 1 : 0);
+        hash = hash * 31 + textureFilter.ordinal();
+        hash = hash * 31 + (backFaceCulling ? 1 : 0);
+        return hash;
+    }
+
+    /**
+     * Reads a key written by {@link #write(ByteBuffer)}, throws an IllegalArgumentException if the bytes do not hold a valid key.
+     */
+    static RenderKey read(ByteBuffer buffer) {
+        long modelFingerprint = buffer.getLong();
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        double[] transform = new double[6];
+        for (int i = 0; i < transform.length; i++) {
+            transform[i] = buffer.getDouble();
+        }
+        boolean useZBuffer = readBoolean(buffer);
+        BlendingMode srcColorComposite = readEnum(buffer, BLENDING_MODES);
+        BlendingMode desColorComposite = readEnum(buffer, BLENDING_MODES);
+        BlendingMode srcAlphaComposite = readEnum(buffer, BLENDING_MODES);
+        BlendingMode desAlphaComposite = readEnum(buffer, BLENDING_MODES);
+        RasterizationMode rasterizationMode = readEnum(buffer, RASTERIZATION_MODES);
+        boolean frontToBack = readBoolean(buffer);
+        int supersampling = buffer.getInt();
+        boolean edgeAntialiasing = readBoolean(buffer);
+        boolean mipmapping = readBoolean(buffer);
+        TextureFilter textureFilter = readEnum(buffer, TEXTURE_FILTERS);
+        boolean backFaceCulling = readBoolean(buffer);
+        boolean hasClip = readBoolean(buffer);
+        Rectangle clip = new Rectangle(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        return new RenderKey(modelFingerprint, width, height, transform, useZBuffer, srcColorComposite, desColorComposite, srcAlphaComposite, desAlphaComposite, rasterizationMode, frontToBack, supersampling, edgeAntialiasing, mipmapping, textureFilter, backFaceCulling, hasClip ? clip : null);
+    }
+
+    private static boolean readBoolean(ByteBuffer buffer) {
+        byte value = buffer.get();
+        if (value != 0 && value != 1) {
+            throw new IllegalArgumentException("Invalid boolean " + value);
+        }
+        return value != 0;
+    }
+
+    private static <T extends Enum<T>> T readEnum(ByteBuffer buffer, T[] values) {
+        int ordinal = buffer.get() & 0xFF;
+        if (ordinal >= values.length) {
+            throw new IllegalArgumentException("Invalid ordinal " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.putLong(modelFingerprint);
+        buffer.putInt(width);
+        buffer.putInt(height);
+        for (double value : transform) {
+            buffer.putDouble(value);
+        }
+        buffer.put((byte) (useZBuffer ? 1 : 0));
+        buffer.put((byte) srcColorComposite.ordinal());
+        buffer.put((byte) desColorComposite.ordinal());
+        buffer.put((byte) srcAlphaComposite.ordinal());
+        buffer.put((byte) desAlphaComposite.ordinal());
+        buffer.put((byte) rasterizationMode.ordinal());
+        buffer.put((byte) (frontToBack ? 1 : 0));
+        buffer.putInt(supersampling);
+        buffer.put((byte) (edgeAntialiasing ? 1 : 0));
+        buffer.put((byte) (mipmapping ? 1 : 0));
+        buffer.put((byte) textureFilter.ordinal());
+        buffer.put((byte) (backFaceCulling ? 1 : 0));
+        buffer.put((byte) (clip == null ? 0 : 1));
+        Rectangle clip = this.clip == null ? new Rectangle() : this.clip;
+        buffer.putInt(clip.x).putInt(clip.y).putInt(clip.width).putInt(clip.height);
+    }
+
+    public long getModelFingerprint() {
+        return modelFingerprint;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RenderKey)) {
+            return false;
+        }
+        RenderKey other = (RenderKey) obj;
+        if (hashCode != other.hashCode || modelFingerprint != other.modelFingerprint || width != other.width || height != other.height) {
+            return false;
+        }
+        if (useZBuffer != other.useZBuffer || srcColorComposite != other.srcColorComposite || desColorComposite != other.desColorComposite || srcAlphaComposite != other.srcAlphaComposite || desAlphaComposite != other.desAlphaComposite) {
+            return false;
+        }
+        if (rasterizationMode != other.rasterizationMode || frontToBack != other.frontToBack || supersampling != other.supersampling || edgeAntialiasing != other.edgeAntialiasing || mipmapping != other.mipmapping || textureFilter != other.textureFilter || backFaceCulling != other.backFaceCulling) {
+            return false;
+        }
+        if (clip == null ? other.clip != null : !clip.equals(other.clip)) {
+            return false;
+        }
+        return Arrays.equals(transform, other.transform);
+    }
+
+    @Override
+    public String toString() {
+        return "RenderKey{" +
+            "modelFingerprint=" + Long.toHexString(modelFingerprint) +
+            ", width=" + width +
+            ", height=" + height +
+            ", transform=" + Arrays.toString(transform) +
+            '}';
+    }
+
+}
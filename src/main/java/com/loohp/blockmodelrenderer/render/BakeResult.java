@@ -21,6 +21,7 @@
 package com.loohp.blockmodelrenderer.render;
 
 import com.loohp.blockmodelrenderer.utils.DoubleBiFunction;
+import com.loohp.blockmodelrenderer.utils.ImageUtils;
 import com.loohp.blockmodelrenderer.utils.MathUtils;
 
 import java.awt.geom.AffineTransform;
@@ -46,8 +47,15 @@ public class BakeResult {
     private final double maxY;
     private final double minX;
     private final double minY;
+    private final double maxDepth;
+    private final double minDepth;
+    private volatile TextureSampler sampler;
 
     public BakeResult(BufferedImage texture, int[] textureDataArray, AffineTransform transform, DoubleBiFunction depthFunction, int depthTieBreaker, double maxX, double maxY, double minX, double minY) {
+        this(texture, textureDataArray, transform, depthFunction, depthTieBreaker, maxX, maxY, minX, minY, Double.MAX_VALUE, MathUtils.NEGATIVE_MAX_DOUBLE);
+    }
+
+    public BakeResult(BufferedImage texture, int[] textureDataArray, AffineTransform transform, DoubleBiFunction depthFunction, int depthTieBreaker, double maxX, double maxY, double minX, double minY, double maxDepth, double minDepth) {
         this.texture = texture;
         this.textureDataArray = textureDataArray;
         this.transform = transform;
@@ -55,6 +63,8 @@ public class BakeResult {
         this.maxY = maxY;
         this.minX = minX;
         this.minY = minY;
+        this.maxDepth = maxDepth;
+        this.minDepth = minDepth;
         AffineTransform inverseTransform;
         try {
             inverseTransform = MathUtils.equals(transform.getDeterminant(), 0.0) ? null : transform.createInverse();
@@ -89,11 +99,26 @@ public class BakeResult {
         this.fullyOpaque = fullyOpaque;
     }
 
+    /**
+     * Returns a copy of the texture, the baked texture itself may be shared with other faces.
+     */
     public BufferedImage getTexture() {
-        return texture;
+        return ImageUtils.copyImage(texture);
     }
 
     public int[] getTextureDataArray() {
+        return textureDataArray.clone();
+    }
+
+    public int getTextureWidth() {
+        return texture.getWidth();
+    }
+
+    public int getTextureHeight() {
+        return texture.getHeight();
+    }
+
+    int[] getSharedTextureData() {
         return textureDataArray;
     }
 
@@ -125,6 +150,25 @@ public class BakeResult {
         return depthTieBreaker;
     }
 
+    /**
+     * Returns the sampler for this bake's texture, or null when texels can be read directly. It is resolved once and
+     * reused for every region the face is drawn into.
+     */
+    TextureSampler getSampler(boolean mipmapping, TextureFilter filter) {
+        int width = getTextureWidth();
+        int height = getTextureHeight();
+        int level = mipmapping ? TextureSampler.getMipmapLevel(Math.sqrt(inverseM00 * inverseM00 + inverseM01 * inverseM01), Math.sqrt(inverseM10 * inverseM10 + inverseM11 * inverseM11), width, height) : 0;
+        if (level == 0 && filter == TextureFilter.NEAREST) {
+            return null;
+        }
+        TextureSampler sampler = this.sampler;
+        if (sampler == null || sampler.getLevel() != level || sampler.getFilter() != filter) {
+            sampler = new TextureSampler(textureDataArray, width, height, level, filter);
+            this.sampler = sampler;
+        }
+        return sampler;
+    }
+
     public boolean isFullyOpaque() {
         return fullyOpaque;
     }
@@ -148,4 +192,12 @@ public class BakeResult {
     public double getMinY() {
         return minY;
     }
+
+    public double getMaxDepth() {
+        return maxDepth;
+    }
+
+    public double getMinDepth() {
+        return minDepth;
+    }
 }
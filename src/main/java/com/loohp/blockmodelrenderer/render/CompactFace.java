@@ -0,0 +1,123 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.blending.BlendingModes;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A view of a single face of a {@link CompactModel}, reading from and writing to the arrays of the model.
+ */
+public final class CompactFace {
+
+    private final CompactModel model;
+    private final int index;
+
+    CompactFace(CompactModel model, int index) {
+        this.model = model;
+        this.index = index;
+    }
+
+    public CompactModel getModel() {
+        return model;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public BufferedImage getImage() {
+        return model.getTexture(index);
+    }
+
+    public void setImage(BufferedImage image) {
+        model.setTexture(index, image);
+    }
+
+    public BufferedImage[] getOverlay() {
+        return model.getOverlay(index);
+    }
+
+    public BlendingModes[] getOverlayBlendingMode() {
+        return model.getOverlayBlendingMode(index);
+    }
+
+    public byte getPriority() {
+        return model.getPriority(index);
+    }
+
+    public double getLightRatio() {
+        return model.getLightRatio(index);
+    }
+
+    public boolean isDoubleSided() {
+        return model.isDoubleSided(index);
+    }
+
+    public void setDoubleSided(boolean doubleSided) {
+        model.setDoubleSided(index, doubleSided);
+    }
+
+    /**
+     * See {@link Face#isBackFacing()}.
+     */
+    public boolean isBackFacing() {
+        return model.isBackFacing(index);
+    }
+
+    public CompactFace getCullface() {
+        int cullface = model.getCullface(index);
+        return cullface < 0 ? null : new CompactFace(model, cullface);
+    }
+
+    /**
+     * Returns a copy of the corners of the face.
+     */
+    public Point3D[] getPoints() {
+        return model.getPoints(index);
+    }
+
+    public double getAverageZ() {
+        return model.getAverageZ(index);
+    }
+
+    public Vector getNormal() {
+        return model.getNormal(index);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(model) + index;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CompactFace)) {
+            return false;
+        }
+        CompactFace other = (CompactFace) obj;
+        return model == other.model && index == other.index;
+    }
+
+}
@@ -0,0 +1,497 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.blending.BlendingModes;
+import com.loohp.blockmodelrenderer.utils.TaskCompletion;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A model stored in primitive arrays instead of {@link Hexahedron}, {@link Face} and {@link Point3D} objects.
+ * Corners shared by several faces are stored once and referenced by index, transforms are accumulated into a single
+ * matrix applied to every corner in one pass and faces are sorted by depth as an array of indices.
+ * Faces are read through {@link CompactFace} views, the faces of each component are stored in the order of
+ * {@link Hexahedron#getByDirectionOrder()}. Cullfaces outside of the model are ignored.
+ */
+public class CompactModel implements ITransformable {
+
+    private static final int[] OPPOSITE_FACES = {1, 0, 4, 5, 2, 3};
+
+    private final int size;
+    private final double[] vertices;
+    private final int[] corners;
+    private final double[] averageZ;
+    private final double[] normals;
+    private final int[] order;
+    private final BufferedImage[] textures;
+    private final BufferedImage[][] overlays;
+    private final BlendingModes[][] overlayBlendingModes;
+    private final byte[] priorities;
+    private final double[] lightRatios;
+    private final int[] cullfaces;
+    private final boolean[] doubleSided;
+    private final Vector[] axis;
+    private volatile double[] transform;
+    private volatile boolean normalsUpdated;
+    private volatile boolean sorted;
+
+    public CompactModel(Model model) {
+        List<Face> faces = new ArrayList<>();
+        for (Hexahedron hexahedron : model.getComponents()) {
+            faces.addAll(hexahedron.getByDirectionOrder());
+        }
+        this.size = faces.size();
+        this.corners = new int[size * 4];
+        this.averageZ = new double[size];
+        this.normals = new double[size * 3];
+        this.order = new int[size];
+        this.textures = new BufferedImage[size];
+        this.overlays = new BufferedImage[size][];
+        this.overlayBlendingModes = new BlendingModes[size][];
+        this.priorities = new byte[size];
+        this.lightRatios = new double[size];
+        this.cullfaces = new int[size];
+        this.doubleSided = new boolean[size];
+        Vector[] axis = null;
+        Map<Face, Integer> indices = new IdentityHashMap<>();
+        Map<List<Double>, Integer> vertexIndices = new HashMap<>();
+        double[] vertices = new double[size * 12];
+        for (int i = 0; i < size; i++) {
+            Face face = faces.get(i);
+            Point3D[] points = face.getPoints();
+            if (points.length != 4) {
+                throw new IllegalArgumentException("faces must have 4 points");
+            }
+            Vector[] faceAxis = face.getUniformAxis();
+            if (faceAxis == null || (axis != null && !sameAxis(axis, faceAxis))) {
+                throw new IllegalArgumentException("faces must share the same rotation axes");
+            }
+            if (axis == null) {
+                axis = new Vector[] {faceAxis[0].clone(), faceAxis[1].clone(), faceAxis[2].clone()};
+            }
+            for (int u = 0; u < 4; u++) {
+                Point3D point = points[u];
+                int next = vertexIndices.size();
+                Integer index = vertexIndices.putIfAbsent(Arrays.asList(point.x, point.y, point.z), next);
+                if (index == null) {
+                    index = next;
+                    vertices[next * 3] = point.x;
+                    vertices[next * 3 + 1] = point.y;
+                    vertices[next * 3 + 2] = point.z;
+                }
+                corners[i * 4 + u] = index;
+            }
+            textures[i] = face.getImage();
+            overlays[i] = face.getOverlay() == null ? null : face.getOverlay().clone();
+            overlayBlendingModes[i] = face.getOverlayBlendingMode() == null ? null : face.getOverlayBlendingMode().clone();
+            priorities[i] = face.getPriority();
+            lightRatios[i] = face.getLightRatio();
+            doubleSided[i] = face.isDoubleSided();
+            indices.put(face, i);
+        }
+        for (int i = 0; i < size; i++) {
+            Face cullface = faces.get(i).getCullface();
+            Integer index = cullface == null ? null : indices.get(cullface);
+            cullfaces[i] = index == null ? -1 : index;
+        }
+        List<Face> sortedFaces = model.getSortedFaces();
+        for (int i = 0; i < size; i++) {
+            order[i] = indices.get(sortedFaces.get(i));
+        }
+        this.vertices = Arrays.copyOf(vertices, vertexIndices.size() * 3);
+        this.axis = axis == null ? new Vector[] {new Vector(1, 0, 0), new Vector(0, 1, 0), new Vector(0, 0, 1)} : axis;
+        this.transform = null;
+        this.normalsUpdated = false;
+        this.sorted = true;
+        updateAverageZ();
+    }
+
+    private static boolean sameAxis(Vector[] a, Vector[] b) {
+        for (int i = 0; i < 3; i++) {
+            if (a[i].getX() != b[i].getX() || a[i].getY() != b[i].getY() || a[i].getZ() != b[i].getZ()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getFaceCount() {
+        return size;
+    }
+
+    public int getVertexCount() {
+        return vertices.length / 3;
+    }
+
+    public int getComponentCount() {
+        return size / 6;
+    }
+
+    public CompactFace getFace(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Face index " + index + " out of bounds for " + size + " faces");
+        }
+        return new CompactFace(this, index);
+    }
+
+    /**
+     * Returns the faces of a component in the order of {@link Hexahedron#getByDirectionOrder()}.
+     */
+    public List<CompactFace> getComponentFaces(int component) {
+        if (component < 0 || component >= getComponentCount()) {
+            throw new IndexOutOfBoundsException("Component index " + component + " out of bounds for " + getComponentCount() + " components");
+        }
+        CompactFace[] faces = new CompactFace[6];
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = new CompactFace(this, component * 6 + i);
+        }
+        return Collections.unmodifiableList(Arrays.asList(faces));
+    }
+
+    /**
+     * Returns the faces sorted by their average depth, furthest first.
+     */
+    public List<CompactFace> getSortedFaces() {
+        ensureSorted();
+        List<CompactFace> faces = new ArrayList<>(size);
+        for (int i : order) {
+            faces.add(new CompactFace(this, i));
+        }
+        return faces;
+    }
+
+    /**
+     * Rotations, translations, scales and flips are accumulated and applied to every corner in a single pass when the
+     * corners are next read, faces are re-sorted by depth before the next render.
+     */
+    @Override
+    public void rotate(double x, double y, double z, boolean saveAxis) {
+        Rotation rotation = new Rotation(x, y, z);
+        double[] matrix = rotation.getMatrix(axis);
+        double[] transform = this.transform;
+        double[] result = new double[12];
+        for (int row = 0; row < 3; row++) {
+            double m0 = matrix[row * 3];
+            double m1 = matrix[row * 3 + 1];
+            double m2 = matrix[row * 3 + 2];
+            if (transform == null) {
+                result[row * 4] = m0;
+                result[row * 4 + 1] = m1;
+                result[row * 4 + 2] = m2;
+            } else {
+                for (int column = 0; column < 4; column++) {
+                    result[row * 4 + column] = m0 * transform[column] + m1 * transform[4 + column] + m2 * transform[8 + column];
+                }
+            }
+        }
+        this.transform = result;
+        if (saveAxis) {
+            rotation.rotateAxis(axis);
+        }
+        sorted = false;
+    }
+
+    @Override
+    public void translate(double x, double y, double z) {
+        double[] transform = getTransform();
+        transform[3] += x;
+        transform[7] += y;
+        transform[11] += z;
+        this.transform = transform;
+        if (z != 0) {
+            sorted = false;
+        }
+    }
+
+    @Override
+    public void scale(double x, double y, double z) {
+        double[] transform = getTransform();
+        for (int column = 0; column < 4; column++) {
+            transform[column] *= x;
+            transform[4 + column] *= y;
+            transform[8 + column] *= z;
+        }
+        this.transform = transform;
+        if (z != 1) {
+            sorted = false;
+        }
+    }
+
+    @Override
+    public void flipAboutPlane(boolean x, boolean y, boolean z) {
+        double[] transform = getTransform();
+        for (int column = 0; column < 4; column++) {
+            if (y && z) {
+                transform[column] = -transform[column];
+            }
+            if (x && z) {
+                transform[4 + column] = -transform[4 + column];
+            }
+            if (x && y) {
+                transform[8 + column] = -transform[8 + column];
+            }
+        }
+        this.transform = transform;
+        if (x && y) {
+            sorted = false;
+        }
+    }
+
+    @Override
+    public void updateLighting(Vector direction, double ambient, double max) {
+        updateNormals();
+        double directionX = direction.getX();
+        double directionY = direction.getY();
+        double directionZ = direction.getZ();
+        for (int i = 0; i < size; i++) {
+            double dot = normals[i * 3] * directionX + normals[i * 3 + 1] * directionY + normals[i * 3 + 2] * directionZ;
+            lightRatios[i] = Face.getLightRatio(dot, ambient, max);
+        }
+    }
+
+    public void sortFaces() {
+        applyTransform();
+        synchronized (order) {
+            DepthSort.sort(order, averageZ);
+            sorted = true;
+        }
+    }
+
+    private void ensureSorted() {
+        if (!sorted) {
+            synchronized (order) {
+                if (!sorted) {
+                    sortFaces();
+                }
+            }
+        }
+    }
+
+    public TaskCompletion render(BufferedImage source, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return render(new RenderTarget(source, false), baseTransform, options, service);
+    }
+
+    public TaskCompletion render(RenderTarget target, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return Model.render(this::bakeFaces, target, baseTransform, options, service);
+    }
+
+    public CompletableFuture<BufferedImage> renderAsync(BufferedImage source, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return renderAsync(new RenderTarget(source, false), baseTransform, options, service);
+    }
+
+    public CompletableFuture<BufferedImage> renderAsync(RenderTarget target, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return Model.renderAsync(this::bakeFaces, target, baseTransform, options, service);
+    }
+
+    List<BakeResult> bakeFaces(AffineTransform baseTransform, RenderOptions options, Rectangle2D viewBounds) {
+        applyTransform();
+        ensureSorted();
+        List<BakeResult> bakes = new ArrayList<>(size);
+        int backFacesCulled = 0;
+        int facesOutsideView = 0;
+        for (int i : order) {
+            BufferedImage texture = textures[i];
+            if (texture == null) {
+                continue;
+            }
+            if (options.isBackFaceCulling() && isBackFacing(i)) {
+                backFacesCulled++;
+                continue;
+            }
+            Point3D[] points = getPoints(i);
+            if (viewBounds != null && Model.isOutside(viewBounds, points)) {
+                facesOutsideView++;
+                continue;
+            }
+            int cullface = cullfaces[i];
+            if (cullface >= 0 && Face.isCulledBy(averageZ[i], priorities[i], averageZ[cullface], priorities[cullface])) {
+                continue;
+            }
+            BakeResult result = Face.bake(points, texture, lightRatios[i], overlays[i], overlayBlendingModes[i], priorities[i], baseTransform);
+            if (result.hasInverseTransform()) {
+                bakes.add(result);
+            }
+        }
+        Model.addCulledFaces(options, backFacesCulled, facesOutsideView);
+        return bakes;
+    }
+
+    boolean isBackFacing(int face) {
+        if (doubleSided[face]) {
+            return false;
+        }
+        updateNormals();
+        int oppositeFace = face - face % 6 + OPPOSITE_FACES[face % 6];
+        double outwardX = 0;
+        double outwardY = 0;
+        double outwardZ = 0;
+        for (int u = 0; u < 4; u++) {
+            int vertex = corners[face * 4 + u] * 3;
+            int oppositeVertex = corners[oppositeFace * 4 + u] * 3;
+            outwardX += vertices[vertex] - vertices[oppositeVertex];
+            outwardY += vertices[vertex + 1] - vertices[oppositeVertex + 1];
+            outwardZ += vertices[vertex + 2] - vertices[oppositeVertex + 2];
+        }
+        return Face.isBackFacing(normals[face * 3], normals[face * 3 + 1], normals[face * 3 + 2], outwardX / 4, outwardY / 4, outwardZ / 4);
+    }
+
+    Point3D[] getPoints(int face) {
+        applyTransform();
+        Point3D[] points = new Point3D[4];
+        for (int u = 0; u < 4; u++) {
+            int vertex = corners[face * 4 + u] * 3;
+            points[u] = new Point3D(vertices[vertex], vertices[vertex + 1], vertices[vertex + 2]);
+        }
+        return points;
+    }
+
+    double getAverageZ(int face) {
+        applyTransform();
+        return averageZ[face];
+    }
+
+    Vector getNormal(int face) {
+        updateNormals();
+        return new Vector(normals[face * 3], normals[face * 3 + 1], normals[face * 3 + 2]);
+    }
+
+    BufferedImage getTexture(int face) {
+        return textures[face];
+    }
+
+    void setTexture(int face, BufferedImage texture) {
+        textures[face] = texture;
+    }
+
+    BufferedImage[] getOverlay(int face) {
+        return overlays[face];
+    }
+
+    BlendingModes[] getOverlayBlendingMode(int face) {
+        return overlayBlendingModes[face];
+    }
+
+    byte getPriority(int face) {
+        return priorities[face];
+    }
+
+    double getLightRatio(int face) {
+        return lightRatios[face];
+    }
+
+    boolean isDoubleSided(int face) {
+        return doubleSided[face];
+    }
+
+    void setDoubleSided(int face, boolean doubleSided) {
+        this.doubleSided[face] = doubleSided;
+    }
+
+    int getCullface(int face) {
+        return cullfaces[face];
+    }
+
+    private void updateNormals() {
+        applyTransform();
+        if (normalsUpdated) {
+            return;
+        }
+        synchronized (normals) {
+            if (normalsUpdated) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                int p0 = corners[i * 4] * 3;
+                int p1 = corners[i * 4 + 1] * 3;
+                int p2 = corners[i * 4 + 2] * 3;
+                double ax = vertices[p2] - vertices[p1];
+                double ay = vertices[p2 + 1] - vertices[p1 + 1];
+                double az = vertices[p2 + 2] - vertices[p1 + 2];
+                double bx = vertices[p1] - vertices[p0];
+                double by = vertices[p1 + 1] - vertices[p0 + 1];
+                double bz = vertices[p1 + 2] - vertices[p0 + 2];
+                double x = ay * bz - by * az;
+                double y = az * bx - bz * ax;
+                double z = ax * by - bx * ay;
+                double magnitude = Math.sqrt(x * x + y * y + z * z);
+                normals[i * 3] = x / magnitude;
+                normals[i * 3 + 1] = y / magnitude;
+                normals[i * 3 + 2] = z / magnitude;
+            }
+            normalsUpdated = true;
+        }
+    }
+
+    private void updateAverageZ() {
+        for (int i = 0; i < size; i++) {
+            averageZ[i] = (vertices[corners[i * 4] * 3 + 2] + vertices[corners[i * 4 + 1] * 3 + 2] + vertices[corners[i * 4 + 2] * 3 + 2] + vertices[corners[i * 4 + 3] * 3 + 2]) / 4;
+        }
+    }
+
+    /**
+     * Returns a copy of the pending transform for the mutators to update and publish as a whole.
+     */
+    private double[] getTransform() {
+        double[] transform = this.transform;
+        if (transform == null) {
+            return new double[] {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0};
+        }
+        return transform.clone();
+    }
+
+    /**
+     * Applies the transforms accumulated by rotate, translate, scale and flipAboutPlane to the corners.
+     */
+    private void applyTransform() {
+        if (transform == null) {
+            return;
+        }
+        synchronized (this) {
+            double[] transform = this.transform;
+            if (transform == null) {
+                return;
+            }
+            for (int i = 0; i < vertices.length; i += 3) {
+                double x = vertices[i];
+                double y = vertices[i + 1];
+                double z = vertices[i + 2];
+                vertices[i] = transform[0] * x + transform[1] * y + transform[2] * z + transform[3];
+                vertices[i + 1] = transform[4] * x + transform[5] * y + transform[6] * z + transform[7];
+                vertices[i + 2] = transform[8] * x + transform[9] * y + transform[10] * z + transform[11];
+            }
+            updateAverageZ();
+            normalsUpdated = false;
+            this.transform = null;
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.loohp.blockmodelrenderer.render;
+
+import java.util.List;
+
+/**
+ * Stable sorting of faces by depth on primitive keys, ties keep their previous order.
+ */
+final class DepthSort {
+
+    private static final int RUN = 8;
+
+    private DepthSort() {
+    }
+
+    static void sort(List<Face> faces) {
+        int size = faces.size();
+        Face[] array = faces.toArray(new Face[size]);
+        double[] depths = new double[size];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            depths[i] = array[i].getAverageZ();
+            order[i] = i;
+        }
+        sort(order, depths);
+        for (int i = 0; i < size; i++) {
+            faces.set(i, array[order[i]]);
+        }
+    }
+
+    /**
+     * Merges consecutive runs of faces that are each already sorted by depth. Runs that are already in order relative
+     * to their neighbour are joined without comparing their faces, so the merge is linear if no runs overlap.
+     */
+    static void mergeRuns(List<Face> faces, int[] runEnds, int runs) {
+        int size = faces.size();
+        Face[] array = faces.toArray(new Face[size]);
+        double[] depths = new double[size];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            depths[i] = array[i].getAverageZ();
+            order[i] = i;
+        }
+        mergeRuns(order, depths, runEnds, runs);
+        for (int i = 0; i < size; i++) {
+            faces.set(i, array[order[i]]);
+        }
+    }
+
+    /**
+     * Sorts the indices in order by ascending depth, each index refers to an entry in depths.
+     */
+    static void sort(int[] order, double[] depths) {
+        int size = order.length;
+        int runs = (size + RUN - 1) / RUN;
+        int[] runEnds = new int[runs];
+        for (int i = 0; i < runs; i++) {
+            int start = i * RUN;
+            runEnds[i] = Math.min(start + RUN, size);
+            insertionSort(order, depths, start, runEnds[i]);
+        }
+        mergeRuns(order, depths, runEnds, runs);
+    }
+
+    static void mergeRuns(int[] order, double[] depths, int[] runEnds, int runs) {
+        int[] ends = new int[runs];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i < runs; i++) {
+            int end = runEnds[i];
+            if (end == start) {
+                continue;
+            }
+            if (count > 0 && Double.compare(depths[order[start - 1]], depths[order[start]]) <= 0) {
+                ends[count - 1] = end;
+            } else {
+                ends[count++] = end;
+            }
+            start = end;
+        }
+        if (count <= 1) {
+            return;
+        }
+        int[] source = order;
+        int[] destination = new int[order.length];
+        while (count > 1) {
+            int merged = 0;
+            int low = 0;
+            for (int i = 0; i < count; i += 2) {
+                if (i + 1 < count) {
+                    merge(source, destination, depths, low, ends[i], ends[i + 1]);
+                    low = ends[i + 1];
+                } else {
+                    System.arraycopy(source, low, destination, low, ends[i] - low);
+                    low = ends[i];
+                }
+                ends[merged++] = low;
+            }
+            count = merged;
+            int[] swap = source;
+            source = destination;
+            destination = swap;
+        }
+        if (source != order) {
+            System.arraycopy(source, 0, order, 0, order.length);
+        }
+    }
+
+    private static void insertionSort(int[] order, double[] depths, int start, int end) {
+        for (int i = start + 1; i < end; i++) {
+            int index = order[i];
+            double depth = depths[index];
+            int u = i - 1;
+            while (u >= start && Double.compare(depths[order[u]], depth) > 0) {
+                order[u + 1] = order[u];
+                u--;
+            }
+            order[u + 1] = index;
+        }
+    }
+
+    private static void merge(int[] source, int[] destination, double[] depths, int low, int middle, int high) {
+        int left = low;
+        int right = middle;
+        for (int i = low; i < high; i++) {
+            if (left < middle && (right >= high || Double.compare(depths[source[left]], depths[source[right]]) <= 0)) {
+                destination[i] = source[left++];
+            } else {
+                destination[i] = source[right++];
+            }
+        }
+    }
+
+}
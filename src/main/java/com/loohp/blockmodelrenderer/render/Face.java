@@ -23,17 +23,15 @@ package com.loohp.blockmodelrenderer.render;
 import com.loohp.blockmodelrenderer.blending.BlendingMode;
 import com.loohp.blockmodelrenderer.blending.BlendingModes;
 import com.loohp.blockmodelrenderer.serialize.Serializable;
-import com.loohp.blockmodelrenderer.utils.ColorUtils;
 import com.loohp.blockmodelrenderer.utils.DataSerializationUtils;
+import com.loohp.blockmodelrenderer.utils.ImageUtils;
 import com.loohp.blockmodelrenderer.utils.MathUtils;
 import com.loohp.blockmodelrenderer.utils.PlaneUtils;
 import com.loohp.blockmodelrenderer.utils.PointConversionUtils;
 
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferInt;
-import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -43,11 +41,23 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Stream;
 
 public class Face implements ITransformable, Serializable {
 
-    public static final Comparator<Face> AVERAGE_DEPTH_COMPARATOR = Comparator.comparing(face -> face.getAverageZ());
+    static final int AVERAGE_X = 0;
+    static final int AVERAGE_Y = 1;
+    static final int AVERAGE_Z = 2;
+    static final int MIN_X = 3;
+    static final int MIN_Y = 4;
+    static final int MIN_Z = 5;
+    static final int MAX_X = 6;
+    static final int MAX_Y = 7;
+    static final int MAX_Z = 8;
+    static final int NORMAL_X = 9;
+    static final int NORMAL_Y = 10;
+    static final int NORMAL_Z = 11;
+
+    public static final Comparator<Face> AVERAGE_DEPTH_COMPARATOR = (a, b) -> Double.compare(a.getAverageZ(), b.getAverageZ());
 
     protected BufferedImage image;
     protected BufferedImage[] overlay;
@@ -59,6 +69,9 @@ public class Face implements ITransformable, Serializable {
     private Point3D[] points;
     private Vector[][] axis;
     private Face cullface;
+    private boolean doubleSided;
+    private volatile double[] transform;
+    private volatile double[] metrics;
 
     public Face(BufferedImage image, Point3D... points) {
         if (points.length != 4) {
@@ -68,6 +81,7 @@ public class Face implements ITransformable, Serializable {
         this.oppositeFace = null;
         this.priority = 1;
         this.cullface = null;
+        this.doubleSided = false;
         this.image = image;
         this.overlay = null;
         this.overlayBlendingMode = null;
@@ -84,6 +98,25 @@ public class Face implements ITransformable, Serializable {
         this(null, points);
     }
 
+    Face(Face face) {
+        face.applyTransform();
+        this.lightRatio = face.lightRatio;
+        this.oppositeFace = null;
+        this.priority = face.priority;
+        this.cullface = null;
+        this.doubleSided = face.doubleSided;
+        this.image = face.image;
+        this.overlay = face.overlay;
+        this.overlayBlendingMode = face.overlayBlendingMode;
+        this.overlayAdditionFactor = face.overlayAdditionFactor;
+        this.points = new Point3D[face.points.length];
+        for (int i = 0; i < points.length; i++) {
+            this.points[i] = face.points[i].clone();
+        }
+        this.metrics = face.metrics;
+        this.axis = face.axis;
+    }
+
     public Face(InputStream inputStream) throws IOException {
         DataInputStream in = new DataInputStream(inputStream);
         this.image = DataSerializationUtils.readImage(in);
@@ -105,6 +138,7 @@ public class Face implements ITransformable, Serializable {
 
     @Override
     public void serialize(OutputStream outputStream) throws IOException {
+        applyTransform();
         DataOutputStream out = new DataOutputStream(outputStream);
         DataSerializationUtils.writeImage(image, out);
         DataSerializationUtils.writeArray(overlay, out, true, (i, o) -> DataSerializationUtils.writeImage(i, o));
@@ -135,6 +169,7 @@ public class Face implements ITransformable, Serializable {
 
     @Override
     public int hashCode() {
+        applyTransform();
         final int prime = 31;
         int result = 1;
         result = prime * result + ((image == null) ? 0 : image.hashCode());
@@ -151,6 +186,8 @@ public class Face implements ITransformable, Serializable {
             return false;
         }
         Face other = (Face) obj;
+        applyTransform();
+        other.applyTransform();
         if (image == null) {
             if (other.image != null) {
                 return false;
@@ -162,6 +199,8 @@ public class Face implements ITransformable, Serializable {
     }
 
     public boolean pointsEquals(Face other) {
+        applyTransform();
+        other.applyTransform();
         Set<Point3D> ourPoints = new HashSet<>(Arrays.asList(this.points));
         for (Point3D point : other.points) {
             if (ourPoints.stream().noneMatch(each -> MathUtils.equals(each.x, point.x) && MathUtils.equals(each.y, point.y) && MathUtils.equals(each.z, point.z))) {
@@ -195,6 +234,10 @@ public class Face implements ITransformable, Serializable {
         this.overlayBlendingMode = overlayBlendingMode;
     }
 
+    public byte getPriority() {
+        return priority;
+    }
+
     public Face getOppositeFace() {
         return oppositeFace;
     }
@@ -211,11 +254,58 @@ public class Face implements ITransformable, Serializable {
         this.cullface = cullface;
     }
 
+    public boolean isDoubleSided() {
+        return doubleSided;
+    }
+
+    /**
+     * Double sided faces are never skipped by {@link RenderOptions#setBackFaceCulling(boolean)}, for planes meant to be seen
+     * from both sides.
+     */
+    public void setDoubleSided(boolean doubleSided) {
+        this.doubleSided = doubleSided;
+    }
+
+    /**
+     * Returns whether the face points away from the viewer, its normal is oriented away from the opposite face.
+     * Faces without an opposite face, double sided faces and faces lying in the same plane as their opposite face are
+     * never back facing.
+     */
+    public boolean isBackFacing() {
+        Face oppositeFace = this.oppositeFace;
+        if (doubleSided || oppositeFace == null) {
+            return false;
+        }
+        return isBackFacing(getMetrics(), oppositeFace.getMetrics());
+    }
+
+    static boolean isBackFacing(double[] metrics, double[] oppositeMetrics) {
+        return isBackFacing(metrics[NORMAL_X], metrics[NORMAL_Y], metrics[NORMAL_Z], metrics[AVERAGE_X] - oppositeMetrics[AVERAGE_X], metrics[AVERAGE_Y] - oppositeMetrics[AVERAGE_Y], metrics[AVERAGE_Z] - oppositeMetrics[AVERAGE_Z]);
+    }
+
+    /**
+     * The outward direction is the offset from the center of the opposite face to the center of the face.
+     */
+    static boolean isBackFacing(double normalX, double normalY, double normalZ, double outwardX, double outwardY, double outwardZ) {
+        double orientation = normalX * outwardX + normalY * outwardY + normalZ * outwardZ;
+        if (!(Math.abs(orientation) > Vector.EPSILON)) {
+            return false;
+        }
+        double facing = orientation > 0 ? normalZ : -normalZ;
+        return facing < -Vector.EPSILON;
+    }
+
+    /**
+     * Returns the points of the face. The cached centroid, bounds and normal are not updated if the points are modified
+     * directly, use the transform methods instead.
+     */
     public Point3D[] getPoints() {
+        applyTransform();
         return points;
     }
 
     public boolean isWithin(double x, double y) {
+        applyTransform();
         Point2D[] points2d = new Point2D[points.length];
         for (int i = 0; i < points.length; i++) {
             points2d[i] = PointConversionUtils.convert(points[i], false);
@@ -224,6 +314,7 @@ public class Face implements ITransformable, Serializable {
     }
 
     public double getDepthAt(double x, double y) {
+        applyTransform();
         Vector rayVector = new Vector(0, 0, 1);
         Vector rayPoint = new Vector(x, y, 0);
         Vector planeNormal = new Vector(this.points[3], this.points[0]).cross(new Vector(this.points[1], this.points[0])).normalize();
@@ -241,39 +332,47 @@ public class Face implements ITransformable, Serializable {
     }
 
     public double getAverageX() {
-        return Stream.of(points).mapToDouble(point -> point.x).average().getAsDouble();
+        return getMetrics()[AVERAGE_X];
     }
 
     public double getAverageY() {
-        return Stream.of(points).mapToDouble(point -> point.y).average().getAsDouble();
+        return getMetrics()[AVERAGE_Y];
     }
 
     public double getAverageZ() {
-        return Stream.of(points).mapToDouble(point -> point.z).average().getAsDouble();
+        return getMetrics()[AVERAGE_Z];
     }
 
     public double getMaxX() {
-        return Stream.of(points).mapToDouble(point -> point.x).max().getAsDouble();
+        return getMetrics()[MAX_X];
     }
 
     public double getMaxY() {
-        return Stream.of(points).mapToDouble(point -> point.y).max().getAsDouble();
+        return getMetrics()[MAX_Y];
     }
 
     public double getMaxZ() {
-        return Stream.of(points).mapToDouble(point -> point.z).max().getAsDouble();
+        return getMetrics()[MAX_Z];
     }
 
     public double getMinX() {
-        return Stream.of(points).mapToDouble(point -> point.x).min().getAsDouble();
+        return getMetrics()[MIN_X];
     }
 
     public double getMinY() {
-        return Stream.of(points).mapToDouble(point -> point.y).min().getAsDouble();
+        return getMetrics()[MIN_Y];
     }
 
     public double getMinZ() {
-        return Stream.of(points).mapToDouble(point -> point.z).min().getAsDouble();
+        return getMetrics()[MIN_Z];
+    }
+
+    /**
+     * Returns the unit normal of the face, the winding of the points decides which side it points to.
+     */
+    public Vector getNormal() {
+        double[] metrics = getMetrics();
+        return new Vector(metrics[NORMAL_X], metrics[NORMAL_Y], metrics[NORMAL_Z]);
     }
 
     public Point3D getCenterPoint() {
@@ -288,7 +387,56 @@ public class Face implements ITransformable, Serializable {
         return lightRatio;
     }
 
+    void copyPosition(Face face) {
+        face.applyTransform();
+        transform = null;
+        for (int i = 0; i < points.length; i++) {
+            Point3D point = points[i];
+            Point3D source = face.points[i];
+            point.x = source.x;
+            point.y = source.y;
+            point.z = source.z;
+        }
+        metrics = face.metrics;
+        lightRatio = face.lightRatio;
+    }
+
     public void rotate(double x, double y, double z, boolean saveAxis) {
+        rotate(new Rotation(x, y, z), saveAxis);
+    }
+
+    void rotate(Rotation rotation, boolean saveAxis) {
+        if (!hasUniformAxis()) {
+            rotatePoints(rotation.getX(), rotation.getY(), rotation.getZ(), saveAxis);
+            return;
+        }
+        double[] matrix = rotation.getMatrix(axis[0]);
+        double[] transform = this.transform;
+        double[] result = new double[12];
+        for (int row = 0; row < 3; row++) {
+            double m0 = matrix[row * 3];
+            double m1 = matrix[row * 3 + 1];
+            double m2 = matrix[row * 3 + 2];
+            if (transform == null) {
+                result[row * 4] = m0;
+                result[row * 4 + 1] = m1;
+                result[row * 4 + 2] = m2;
+            } else {
+                for (int column = 0; column < 4; column++) {
+                    result[row * 4 + column] = m0 * transform[column] + m1 * transform[4 + column] + m2 * transform[8 + column];
+                }
+            }
+        }
+        this.transform = result;
+        if (saveAxis) {
+            for (Vector[] pointAxis : axis) {
+                rotation.rotateAxis(pointAxis);
+            }
+        }
+    }
+
+    private void rotatePoints(double x, double y, double z, boolean saveAxis) {
+        applyTransform();
         x = Math.toRadians(x);
         y = Math.toRadians(y);
         z = Math.toRadians(z);
@@ -317,129 +465,246 @@ public class Face implements ITransformable, Serializable {
             point.y = v.getY();
             point.z = v.getZ();
         }
+        metrics = null;
     }
 
     public void translate(double x, double y, double z) {
-        for (Point3D point : points) {
-            PointConversionUtils.translate(point, x, y, z);
-        }
+        double[] transform = getTransform();
+        transform[3] += x;
+        transform[7] += y;
+        transform[11] += z;
+        this.transform = transform;
     }
 
     public void scale(double x, double y, double z) {
-        for (Point3D point : points) {
-            PointConversionUtils.scale(point, x, y, z);
+        double[] transform = getTransform();
+        for (int column = 0; column < 4; column++) {
+            transform[column] *= x;
+            transform[4 + column] *= y;
+            transform[8 + column] *= z;
         }
+        this.transform = transform;
     }
 
     @Override
     public void flipAboutPlane(boolean x, boolean y, boolean z) {
+        double[] transform = getTransform();
+        for (int column = 0; column < 4; column++) {
+            if (y && z) {
+                transform[column] = -transform[column];
+            }
+            if (x && z) {
+                transform[4 + column] = -transform[4 + column];
+            }
+            if (x && y) {
+                transform[8 + column] = -transform[8 + column];
+            }
+        }
+        this.transform = transform;
+    }
+
+    /**
+     * Returns the rotation axes shared by every point, or null if the points have been rotated about different axes.
+     */
+    Vector[] getUniformAxis() {
+        return hasUniformAxis() ? axis[0] : null;
+    }
+
+    private boolean hasUniformAxis() {
+        Vector[] first = axis[0];
+        for (int i = 1; i < axis.length; i++) {
+            for (int u = 0; u < 3; u++) {
+                Vector a = first[u];
+                Vector b = axis[i][u];
+                if (a.getX() != b.getX() || a.getY() != b.getY() || a.getZ() != b.getZ()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of the pending transform, which is replaced rather than changed in place so applyTransform never
+     * reads an array that is being written.
+     */
+    private double[] getTransform() {
+        double[] transform = this.transform;
+        if (transform == null) {
+            return new double[] {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0};
+        }
+        return transform.clone();
+    }
+
+    /**
+     * Applies the transforms accumulated by rotate, translate, scale and flipAboutPlane to the points.
+     */
+    private void applyTransform() {
+        if (transform == null) {
+            return;
+        }
+        synchronized (this) {
+            double[] transform = this.transform;
+            if (transform == null) {
+                return;
+            }
+            for (Point3D point : points) {
+                double x = point.x;
+                double y = point.y;
+                double z = point.z;
+                point.x = transform[0] * x + transform[1] * y + transform[2] * z + transform[3];
+                point.y = transform[4] * x + transform[5] * y + transform[6] * z + transform[7];
+                point.z = transform[8] * x + transform[9] * y + transform[10] * z + transform[11];
+            }
+            metrics = null;
+            this.transform = null;
+        }
+    }
+
+    double[] getMetrics() {
+        applyTransform();
+        double[] metrics = this.metrics;
+        if (metrics == null) {
+            metrics = computeMetrics(points);
+            this.metrics = metrics;
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the average x, y and z, the minimum and maximum x, y and z and the normal of the points, in that order.
+     */
+    static double[] computeMetrics(Point3D[] points) {
+        double[] metrics = new double[12];
+        Point3D first = points[0];
+        double sumX = 0;
+        double sumY = 0;
+        double sumZ = 0;
+        double minX = first.x;
+        double minY = first.y;
+        double minZ = first.z;
+        double maxX = first.x;
+        double maxY = first.y;
+        double maxZ = first.z;
+        for (Point3D point : points) {
+            sumX += point.x;
+            sumY += point.y;
+            sumZ += point.z;
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+            minZ = Math.min(minZ, point.z);
+            maxX = Math.max(maxX, point.x);
+            maxY = Math.max(maxY, point.y);
+            maxZ = Math.max(maxZ, point.z);
+        }
+        metrics[AVERAGE_X] = sumX / points.length;
+        metrics[AVERAGE_Y] = sumY / points.length;
+        metrics[AVERAGE_Z] = sumZ / points.length;
+        metrics[MIN_X] = minX;
+        metrics[MIN_Y] = minY;
+        metrics[MIN_Z] = minZ;
+        metrics[MAX_X] = maxX;
+        metrics[MAX_Y] = maxY;
+        metrics[MAX_Z] = maxZ;
+        Vector normal = new Vector(points[1], points[2]).cross(new Vector(points[0], points[1])).normalize();
+        metrics[NORMAL_X] = normal.getX();
+        metrics[NORMAL_Y] = normal.getY();
+        metrics[NORMAL_Z] = normal.getZ();
+        return metrics;
+    }
+
+    static double getAverageZ(Point3D[] points) {
+        double sum = 0;
         for (Point3D point : points) {
-            PointConversionUtils.flipAboutPlane(point, x, y, z);
+            sum += point.z;
         }
+        return sum / points.length;
     }
 
     @Override
     public void updateLighting(Vector direction, double ambient, double max) {
-        Vector normal = new Vector(this.points[1], this.points[2]).cross(new Vector(this.points[0], this.points[1])).normalize();
-        double dot = normal.dot(direction);
+        double[] metrics = getMetrics();
+        lightRatio = getLightRatio(metrics[NORMAL_X] * direction.getX() + metrics[NORMAL_Y] * direction.getY() + metrics[NORMAL_Z] * direction.getZ(), ambient, max);
+    }
+
+    static double getLightRatio(Point3D[] points, Vector direction, double ambient, double max) {
+        Vector normal = new Vector(points[1], points[2]).cross(new Vector(points[0], points[1])).normalize();
+        return getLightRatio(normal.dot(direction), ambient, max);
+    }
+
+    static double getLightRatio(double dot, double ambient, double max) {
         double sign = Math.signum(dot);
         dot = sign * dot * dot;
         dot = (dot + 1.0) / 2.0 * (1.0 - ambient);
 
-        lightRatio = Math.min(Math.min(max, 1.0), Math.max(0.0, ambient + dot));
+        return Math.min(Math.min(max, 1.0), Math.max(0.0, ambient + dot));
     }
 
     public BakeResult bake(AffineTransform baseTransform) {
+        applyTransform();
         if (image == null) {
             return null;
-        } else {
-            if (cullface != null) {
-                if (AVERAGE_DEPTH_COMPARATOR.compare(this, cullface) <= 0) {
-                    if (cullface.priority > this.priority || cullface.getAverageZ() - this.getAverageZ() > 0.1) {
-                        return null;
-                    }
-                }
-            }
-
-            Point2D[] points2d = new Point2D[points.length];
-            for (int i = 0; i < points.length; i++) {
-                points2d[i] = PointConversionUtils.convert(points[i], true);
-            }
-
-            boolean hasOverlay = overlay != null && overlay.length > 0;
-            BufferedImage image;
-            int[] imageData;
-            if (MathUtils.equals(lightRatio, 1.0) && !hasOverlay && hasContiguousIntArgbData(this.image)) {
-                image = this.image;
-                imageData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
-            } else {
-                int width = this.image.getWidth();
-                int height = this.image.getHeight();
-                image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-                imageData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
-                if (hasContiguousIntArgbData(this.image)) {
-                    System.arraycopy(((DataBufferInt) this.image.getRaster().getDataBuffer()).getData(), 0, imageData, 0, imageData.length);
-                } else {
-                    this.image.getRGB(0, 0, width, height, imageData, 0, width);
-                }
-                if (!MathUtils.equals(lightRatio, 1.0)) {
-                    for (int i = 0; i < imageData.length; i++) {
-                        int colorValue = imageData[i];
-                        int alpha = ColorUtils.getAlpha(colorValue);
-                        if (alpha != 0) {
-                            int red = Math.min(255, Math.max(0, (int) (ColorUtils.getRed(colorValue) * lightRatio)));
-                            int green = Math.min(255, Math.max(0, (int) (ColorUtils.getGreen(colorValue) * lightRatio)));
-                            int blue = Math.min(255, Math.max(0, (int) (ColorUtils.getBlue(colorValue) * lightRatio)));
-                            imageData[i] = ColorUtils.getIntFromColor(red, green, blue, alpha);
-                        }
-                    }
-                }
-            }
-            if (hasOverlay) {
-                int width = image.getWidth();
-                int height = image.getHeight();
-                for (int i = 0; i < overlay.length; i++) {
-                    BufferedImage overlayLayer = overlay[i];
-                    BlendingModes blendingModes = overlayBlendingMode == null || i >= overlayBlendingMode.length || overlayBlendingMode[i] == null ? BlendingModes.GLINT : overlayBlendingMode[i];
-                    int[] overlayData = overlayLayer.getRGB(0, 0, width, height, null, 0, width);
-                    for (int j = 0; j < imageData.length; j++) {
-                        imageData[j] = ColorUtils.composite(overlayData[j], imageData[j], blendingModes);
-                    }
-                }
-            }
-
-            AffineTransform transform = (AffineTransform) baseTransform.clone();
-            transform.concatenate(new AffineTransform(
-                    (points2d[1].x - points2d[0].x) / image.getWidth(),
-                    (points2d[1].y - points2d[0].y) / image.getWidth(),
-                    (points2d[3].x - points2d[0].x) / image.getHeight(),
-                    (points2d[3].y - points2d[0].y) / image.getHeight(),
-                    points2d[0].x,
-                    points2d[0].y
-            ));
-
-            Vector planeNormal = new Vector(this.points[3], this.points[0]).cross(new Vector(this.points[1], this.points[0])).normalize();
-            double depthX = -planeNormal.getX() / planeNormal.getZ();
-            double depthY = -planeNormal.getY() / planeNormal.getZ();
-            double depthOffset = this.points[0].z - depthX * this.points[0].x - depthY * this.points[0].y;
-
-            return new BakeResult(image, imageData, transform, (x, y) -> depthX * x + depthY * y + depthOffset, priority, getMaxX(), getMaxY(), getMinX(), getMinY());
         }
+        if (cullface != null && isCulledBy(getAverageZ(), priority, cullface.getAverageZ(), cullface.priority)) {
+            return null;
+        }
+        return bake(points, image, lightRatio, overlay, overlayBlendingMode, priority, baseTransform);
     }
 
-    private static boolean hasContiguousIntArgbData(BufferedImage image) {
-        if (image.getType() != BufferedImage.TYPE_INT_ARGB) {
-            return false;
+    /**
+     * Returns whether a face is hidden by its cullface, which is the case when it is not in front of the cullface and
+     * the cullface either has a higher priority or is more than 0.1 in front of it.
+     */
+    static boolean isCulledBy(double averageZ, byte priority, double cullfaceAverageZ, byte cullfacePriority) {
+        return Double.compare(averageZ, cullfaceAverageZ) <= 0 && (cullfacePriority > priority || cullfaceAverageZ - averageZ > 0.1);
+    }
+
+    static BakeResult bake(Point3D[] points, BufferedImage texture, double lightRatio, BufferedImage[] overlay, BlendingModes[] overlayBlendingMode, byte priority, AffineTransform baseTransform) {
+        Point2D[] points2d = new Point2D[points.length];
+        for (int i = 0; i < points.length; i++) {
+            points2d[i] = PointConversionUtils.convert(points[i], true);
         }
-        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
-        if (!(dataBuffer instanceof DataBufferInt) || dataBuffer.getOffset() != 0) {
-            return false;
+
+        boolean hasOverlay = overlay != null && overlay.length > 0;
+        BufferedImage image;
+        if (MathUtils.equals(lightRatio, 1.0) && !hasOverlay && ImageUtils.hasContiguousIntArgbData(texture)) {
+            image = texture;
+        } else {
+            image = TextureCache.getPrepared(texture, lightRatio, hasOverlay ? overlay : null, overlayBlendingMode);
         }
-        if (!(image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel)) {
-            return false;
+        int[] imageData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        AffineTransform transform = (AffineTransform) baseTransform.clone();
+        transform.concatenate(new AffineTransform(
+                (points2d[1].x - points2d[0].x) / image.getWidth(),
+                (points2d[1].y - points2d[0].y) / image.getWidth(),
+                (points2d[3].x - points2d[0].x) / image.getHeight(),
+                (points2d[3].y - points2d[0].y) / image.getHeight(),
+                points2d[0].x,
+                points2d[0].y
+        ));
+
+        Vector planeNormal = new Vector(points[3], points[0]).cross(new Vector(points[1], points[0])).normalize();
+        double depthX = -planeNormal.getX() / planeNormal.getZ();
+        double depthY = -planeNormal.getY() / planeNormal.getZ();
+        double depthOffset = points[0].z - depthX * points[0].x - depthY * points[0].y;
+
+        double maxX = points[0].x;
+        double maxY = points[0].y;
+        double maxZ = points[0].z;
+        double minX = points[0].x;
+        double minY = points[0].y;
+        double minZ = points[0].z;
+        for (int i = 1; i < points.length; i++) {
+            maxX = Math.max(maxX, points[i].x);
+            maxY = Math.max(maxY, points[i].y);
+            maxZ = Math.max(maxZ, points[i].z);
+            minX = Math.min(minX, points[i].x);
+            minY = Math.min(minY, points[i].y);
+            minZ = Math.min(minZ, points[i].z);
         }
-        SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) image.getRaster().getSampleModel();
-        return sampleModel.getScanlineStride() == image.getWidth() && ((DataBufferInt) dataBuffer).getData().length == image.getWidth() * image.getHeight();
+
+        return new BakeResult(image, imageData, transform, (x, y) -> depthX * x + depthY * y + depthOffset, priority, maxX, maxY, minX, minY, maxZ, minZ);
     }
 
 }
@@ -57,6 +57,7 @@ public class Hexahedron implements ITransformable, Serializable {
     private final Face westFace;
     private final List<Face> byDirection;
     private final List<Face> byAverageZ;
+    private volatile boolean sorted;
 
     public Hexahedron(Face upFace, Face downFace, Face northFace, Face eastFace, Face southFace, Face westFace) {
         this.upFace = upFace;
@@ -127,6 +128,7 @@ public class Hexahedron implements ITransformable, Serializable {
 
     @Override
     public int hashCode() {
+        ensureSorted();
         final int prime = 31;
         int result = 1;
         result = prime * result + ((downFace == null) ? 0 : downFace.hashCode());
@@ -148,6 +150,8 @@ public class Hexahedron implements ITransformable, Serializable {
             return false;
         }
         Hexahedron other = (Hexahedron) obj;
+        ensureSorted();
+        other.ensureSorted();
         if (downFace == null) {
             if (other.downFace != null) {
                 return false;
@@ -246,6 +250,7 @@ public class Hexahedron implements ITransformable, Serializable {
     }
 
     public List<Face> getFacesByAverageZ() {
+        ensureSorted();
         return byAverageZ;
     }
 
@@ -278,22 +283,32 @@ public class Hexahedron implements ITransformable, Serializable {
     }
 
     public void rotate(double x, double y, double z, boolean saveAxis) {
-        for (Face face : byAverageZ) {
-            face.rotate(x, y, z, saveAxis);
+        rotate(new Rotation(x, y, z), saveAxis);
+    }
+
+    void rotate(Rotation rotation, boolean saveAxis) {
+        for (Face face : byDirection) {
+            face.rotate(rotation, saveAxis);
         }
-        sortFaces();
+        sorted = false;
     }
 
     public void translate(double x, double y, double z) {
         for (Face face : byAverageZ) {
             face.translate(x, y, z);
         }
+        if (z != 0) {
+            sorted = false;
+        }
     }
 
     public void scale(double x, double y, double z) {
         for (Face face : byAverageZ) {
             face.scale(x, y, z);
         }
+        if (z != 1) {
+            sorted = false;
+        }
     }
 
     @Override
@@ -301,6 +316,9 @@ public class Hexahedron implements ITransformable, Serializable {
         for (Face face : byAverageZ) {
             face.flipAboutPlane(x, y, z);
         }
+        if (x && y) {
+            sorted = false;
+        }
     }
 
     @Override
@@ -311,7 +329,20 @@ public class Hexahedron implements ITransformable, Serializable {
     }
 
     public void sortFaces() {
-        byAverageZ.sort(Face.AVERAGE_DEPTH_COMPARATOR);
+        synchronized (byAverageZ) {
+            DepthSort.sort(byAverageZ);
+            sorted = true;
+        }
+    }
+
+    private void ensureSorted() {
+        if (!sorted) {
+            synchronized (byAverageZ) {
+                if (!sorted) {
+                    sortFaces();
+                }
+            }
+        }
     }
 
 }
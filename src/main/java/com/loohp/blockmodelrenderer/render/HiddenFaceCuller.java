@@ -0,0 +1,176 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds faces that can never be seen because they lie against a face of another component facing the opposite way
+ * which covers them entirely. Only solid components take part, components whose six faces all have opaque images without
+ * overlays, so the hidden faces cannot be seen through either component.
+ */
+final class HiddenFaceCuller {
+
+    private static final double EPSILON = 0.0001;
+    private static final double PLANE_GRID = 1000;
+
+    private HiddenFaceCuller() {
+    }
+
+    static List<Face> findHiddenFaces(List<Hexahedron> components) {
+        Map<BufferedImage, Boolean> opaqueImages = new IdentityHashMap<>();
+        Map<List<Long>, List<Entry>> planes = new HashMap<>();
+        for (int i = 0; i < components.size(); i++) {
+            List<Face> faces = components.get(i).getByDirectionOrder();
+            if (!isSolid(faces, opaqueImages)) {
+                continue;
+            }
+            for (Face face : faces) {
+                Entry entry = Entry.of(face, i);
+                if (entry != null) {
+                    planes.computeIfAbsent(entry.getPlaneKey(), k -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+        List<Face> hiddenFaces = new ArrayList<>();
+        for (List<Entry> plane : planes.values()) {
+            for (Entry entry : plane) {
+                for (Entry other : plane) {
+                    if (other.component != entry.component && other.side != entry.side && other.covers(entry)) {
+                        hiddenFaces.add(entry.face);
+                        break;
+                    }
+                }
+            }
+        }
+        return hiddenFaces;
+    }
+
+    private static boolean isSolid(List<Face> faces, Map<BufferedImage, Boolean> opaqueImages) {
+        for (Face face : faces) {
+            BufferedImage image = face.getImage();
+            if (image == null || (face.getOverlay() != null && face.getOverlay().length > 0)) {
+                return false;
+            }
+            if (!opaqueImages.computeIfAbsent(image, ImageUtils::isOpaque)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Entry {
+
+        private static Entry of(Face face, int component) {
+            Face oppositeFace = face.getOppositeFace();
+            if (face.isDoubleSided() || oppositeFace == null) {
+                return null;
+            }
+            double[] metrics = face.getMetrics();
+            double[] oppositeMetrics = oppositeFace.getMetrics();
+            double normalX = metrics[Face.NORMAL_X];
+            double normalY = metrics[Face.NORMAL_Y];
+            double normalZ = metrics[Face.NORMAL_Z];
+            double orientation = normalX * (metrics[Face.AVERAGE_X] - oppositeMetrics[Face.AVERAGE_X]) + normalY * (metrics[Face.AVERAGE_Y] - oppositeMetrics[Face.AVERAGE_Y]) + normalZ * (metrics[Face.AVERAGE_Z] - oppositeMetrics[Face.AVERAGE_Z]);
+            if (!(Math.abs(orientation) > EPSILON)) {
+                return null;
+            }
+            int side = orientation > 0 ? 1 : -1;
+            if (normalX < -EPSILON || (normalX <= EPSILON && (normalY < -EPSILON || (normalY <= EPSILON && normalZ < 0)))) {
+                normalX = -normalX;
+                normalY = -normalY;
+                normalZ = -normalZ;
+                side = -side;
+            }
+            return new Entry(face, component, side, normalX, normalY, normalZ, face.getPoints().clone());
+        }
+
+        private final Face face;
+        private final int component;
+        private final int side;
+        private final double normalX;
+        private final double normalY;
+        private final double normalZ;
+        private final Point3D[] points;
+
+        private Entry(Face face, int component, int side, double normalX, double normalY, double normalZ, Point3D[] points) {
+            this.face = face;
+            this.component = component;
+            this.side = side;
+            this.normalX = normalX;
+            this.normalY = normalY;
+            this.normalZ = normalZ;
+            this.points = points;
+        }
+
+        private List<Long> getPlaneKey() {
+            double offset = normalX * points[0].x + normalY * points[0].y + normalZ * points[0].z;
+            List<Long> key = new ArrayList<>(4);
+            key.add(Math.round(normalX * PLANE_GRID));
+            key.add(Math.round(normalY * PLANE_GRID));
+            key.add(Math.round(normalZ * PLANE_GRID));
+            key.add(Math.round(offset * PLANE_GRID));
+            return key;
+        }
+
+        /**
+         * Returns whether every point of the other face lies within this face, both faces being convex and in the same plane.
+         */
+        private boolean covers(Entry other) {
+            for (Point3D point : other.points) {
+                double planeDistance = normalX * (point.x - points[0].x) + normalY * (point.y - points[0].y) + normalZ * (point.z - points[0].z);
+                if (Math.abs(planeDistance) > EPSILON) {
+                    return false;
+                }
+                int sign = 0;
+                for (int i = 0; i < points.length; i++) {
+                    Point3D start = points[i];
+                    Point3D end = points[(i + 1) % points.length];
+                    double edgeX = end.x - start.x;
+                    double edgeY = end.y - start.y;
+                    double edgeZ = end.z - start.z;
+                    double offsetX = point.x - start.x;
+                    double offsetY = point.y - start.y;
+                    double offsetZ = point.z - start.z;
+                    double side = normalX * (edgeY * offsetZ - edgeZ * offsetY) + normalY * (edgeZ * offsetX - edgeX * offsetZ) + normalZ * (edgeX * offsetY - edgeY * offsetX);
+                    double length = Math.sqrt(edgeX * edgeX + edgeY * edgeY + edgeZ * edgeZ);
+                    if (Math.abs(side) <= EPSILON * length) {
+                        continue;
+                    }
+                    int edgeSign = side > 0 ? 1 : -1;
+                    if (sign != 0 && edgeSign != sign) {
+                        return false;
+                    }
+                    sign = edgeSign;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -28,10 +28,10 @@ import com.loohp.blockmodelrenderer.utils.TaskCompletion;
 import org.tinspin.index.rtree.RTree;
 import org.tinspin.index.rtree.RTreeIterator;
 
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
-import java.awt.image.DataBufferInt;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -39,16 +39,23 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
 public class Model implements ITransformable, Serializable {
 
     public static final int PIXEL_PER_THREAD = 256;
+    public static final int TILE_SIZE = 32;
+
+    private static final int VIEW_BOUNDS_MARGIN = 2;
 
     private final List<Hexahedron> components;
     private final List<Face> faces;
+    private volatile boolean sorted;
 
     public Model(List<Hexahedron> components) {
         this.components = components;
@@ -59,6 +66,15 @@ public class Model implements ITransformable, Serializable {
         sortFaces();
     }
 
+    /**
+     * Creates a model from faces that are already sorted by depth, see {@link ModelBuilder}.
+     */
+    Model(List<Hexahedron> components, List<Face> sortedFaces) {
+        this.components = components;
+        this.faces = sortedFaces;
+        this.sorted = true;
+    }
+
     public Model(Hexahedron... components) {
         this(new ArrayList<>(Arrays.asList(components)));
     }
@@ -86,41 +102,76 @@ public class Model implements ITransformable, Serializable {
         }
     }
 
+    /**
+     * Adds the components of the model, its faces are merged into the sorted faces of this model in linear time.
+     * Use {@link ModelBuilder} to combine many models.
+     */
     public void append(Model model) {
-        for (Hexahedron hexahedron : model.components) {
-            this.components.add(hexahedron);
-            this.faces.addAll(hexahedron.getFacesByAverageZ());
+        List<Face> appendedFaces = model.getSortedFaces();
+        synchronized (faces) {
+            ensureSorted();
+            int end = faces.size();
+            components.addAll(model.components);
+            faces.addAll(appendedFaces);
+            DepthSort.mergeRuns(faces, new int[] {end, faces.size()}, 2);
         }
-        sortFaces();
     }
 
     public List<Hexahedron> getComponents() {
         return components;
     }
 
+    /**
+     * Removes the image of every face lying against a face of another component that faces the opposite way and covers
+     * it entirely, so the face is skipped on every render afterwards. Only components whose six faces all have opaque
+     * images without overlays are considered, faces between them cannot be seen from any view.
+     * Double sided faces and flat components are left untouched. Returns the number of faces removed.
+     */
+    public int cullHiddenFaces() {
+        List<Face> hiddenFaces = HiddenFaceCuller.findHiddenFaces(components);
+        for (Face face : hiddenFaces) {
+            face.setImage(null);
+        }
+        return hiddenFaces.size();
+    }
+
+    /**
+     * Rotations, translations, scales and flips are accumulated per face and applied to the points in a single pass
+     * when they are next read, faces are re-sorted by depth before the next render.
+     */
     public void rotate(double x, double y, double z, boolean saveAxis) {
+        Rotation rotation = new Rotation(x, y, z);
         for (Hexahedron hexahedron : components) {
-            hexahedron.rotate(x, y, z, saveAxis);
+            hexahedron.rotate(rotation, saveAxis);
         }
-        sortFaces();
+        sorted = false;
     }
 
     public void translate(double x, double y, double z) {
         for (Hexahedron hexahedron : components) {
             hexahedron.translate(x, y, z);
         }
+        if (z != 0) {
+            sorted = false;
+        }
     }
 
     public void scale(double x, double y, double z) {
         for (Hexahedron hexahedron : components) {
             hexahedron.scale(x, y, z);
         }
+        if (z != 1) {
+            sorted = false;
+        }
     }
 
     public void flipAboutPlane(boolean x, boolean y, boolean z) {
         for (Hexahedron hexahedron : components) {
             hexahedron.flipAboutPlane(x, y, z);
         }
+        if (x && y) {
+            sorted = false;
+        }
     }
 
     @Override
@@ -131,59 +182,179 @@ public class Model implements ITransformable, Serializable {
     }
 
     public void sortFaces() {
-        faces.sort(Face.AVERAGE_DEPTH_COMPARATOR);
+        synchronized (faces) {
+            DepthSort.sort(faces);
+            sorted = true;
+        }
+    }
+
+    private void ensureSorted() {
+        if (!sorted) {
+            synchronized (faces) {
+                if (!sorted) {
+                    sortFaces();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of the model with its own points sharing the textures, overlays and rotation axes of this model.
+     * The axes must not be modified through the copy.
+     */
+    Model createView() {
+        Map<Face, Face> copies = new IdentityHashMap<>();
+        List<Hexahedron> viewComponents = new ArrayList<>(components.size());
+        for (Hexahedron hexahedron : components) {
+            List<Face> faces = hexahedron.getByDirectionOrder();
+            Face[] viewFaces = new Face[faces.size()];
+            for (int i = 0; i < viewFaces.length; i++) {
+                viewFaces[i] = new Face(faces.get(i));
+                copies.put(faces.get(i), viewFaces[i]);
+            }
+            viewComponents.add(new Hexahedron(viewFaces[0], viewFaces[1], viewFaces[2], viewFaces[3], viewFaces[4], viewFaces[5]));
+        }
+        for (Map.Entry<Face, Face> entry : copies.entrySet()) {
+            Face cullface = entry.getKey().getCullface();
+            if (cullface != null) {
+                entry.getValue().setCullface(copies.getOrDefault(cullface, cullface));
+            }
+        }
+        return new Model(viewComponents);
     }
 
     public TaskCompletion render(BufferedImage source, boolean useZBuffer, AffineTransform baseTransform, BlendingModes blendingMode, ExecutorService service) {
+        return render(source, useZBuffer, baseTransform, blendingMode, service, RasterizationMode.PIXEL_QUERY);
+    }
+
+    public TaskCompletion render(BufferedImage source, boolean useZBuffer, AffineTransform baseTransform, BlendingModes blendingMode, ExecutorService service, RasterizationMode rasterizationMode) {
+        return render(source, baseTransform, new RenderOptions().setUseZBuffer(useZBuffer).setBlendingMode(blendingMode).setRasterizationMode(rasterizationMode), service);
+    }
+
+    public TaskCompletion render(BufferedImage source, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return render(new RenderTarget(source, false), baseTransform, options, service);
+    }
+
+    public TaskCompletion render(RenderTarget target, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return render(this::bakeFaces, target, baseTransform, options, service);
+    }
+
+    public CompletableFuture<BufferedImage> renderAsync(BufferedImage source, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return renderAsync(new RenderTarget(source, false), baseTransform, options, service);
+    }
+
+    public CompletableFuture<BufferedImage> renderAsync(RenderTarget target, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return renderAsync(this::bakeFaces, target, baseTransform, options, service);
+    }
+
+    RenderScheduler createScheduler(RenderTarget target, AffineTransform baseTransform, RenderOptions options) {
+        return createScheduler(this::bakeFaces, target, baseTransform, options);
+    }
+
+    static TaskCompletion render(FaceBaker baker, RenderTarget target, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return new TaskCompletion(Collections.singletonList(createScheduler(baker, target, baseTransform, options).schedule(options, service)));
+    }
+
+    static CompletableFuture<BufferedImage> renderAsync(FaceBaker baker, RenderTarget target, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return RenderFuture.schedule(() -> createScheduler(baker, target, baseTransform, options), options, service, target.getImage());
+    }
+
+    static RenderScheduler createScheduler(FaceBaker baker, RenderTarget target, AffineTransform baseTransform, RenderOptions options) {
+        int samples = options.getSupersampling();
+        if (samples > 1) {
+            AffineTransform sampleTransform = AffineTransform.getTranslateInstance((samples - 1) / 2.0, (samples - 1) / 2.0);
+            sampleTransform.scale(samples, samples);
+            sampleTransform.concatenate(baseTransform);
+            baseTransform = sampleTransform;
+        }
+        Rectangle viewport = new Rectangle(0, 0, target.getWidth(), target.getHeight());
+        if (options.getClip() != null) {
+            viewport = viewport.intersection(options.getClip());
+        }
+        if (viewport.isEmpty()) {
+            return new RenderScheduler(new long[0], (start, end) -> {});
+        }
+        if (options.getRasterizationMode() == RasterizationMode.SCANLINE) {
+            return createScanlineScheduler(baker, target, viewport, baseTransform, options);
+        } else if (options.getRasterizationMode() == RasterizationMode.TILED || samples > 1 || options.isEdgeAntialiasing()) {
+            return createTiledScheduler(baker, target, viewport, baseTransform, options);
+        }
+        boolean useZBuffer = options.isUseZBuffer();
+        BlendingModes blendingMode = options.getBlendingMode();
+        List<BakeResult> bakeList = bakeFaces(baker, baseTransform, options, viewport);
         RTree<BakeResult> bakes = RTree.createRStar(2);
-        for (Face face : faces) {
-            BakeResult result = face.bake(baseTransform);
-            if (result != null && result.hasInverseTransform()) {
-                bakes.insert(new double[] {result.getMinX(), result.getMinY()}, new double[] {result.getMaxX(), result.getMaxY()}, result);
+        for (BakeResult result : bakeList) {
+            bakes.insert(new double[] {result.getMinX(), result.getMinY()}, new double[] {result.getMaxX(), result.getMaxY()}, result);
+        }
+        int w = target.getWidth();
+        int viewX = viewport.x;
+        int viewY = viewport.y;
+        int viewEndX = viewport.x + viewport.width;
+        int viewHeight = viewport.height;
+        Rasterizer rasterizer = new Rasterizer(baseTransform, options);
+        long[] faceCosts = new long[viewHeight + 1];
+        int[] spanStarts = new int[viewHeight];
+        int[] spanEnds = new int[viewHeight];
+        Arrays.fill(spanStarts, viewEndX);
+        Arrays.fill(spanEnds, viewX);
+        for (BakeResult bake : bakeList) {
+            int minX = Math.max(viewX, rasterizer.getPixelMinX(bake));
+            int maxX = Math.min(viewEndX - 1, rasterizer.getPixelMaxX(bake));
+            int minY = Math.max(viewY, rasterizer.getPixelMinY(bake));
+            int maxY = Math.min(viewY + viewHeight - 1, rasterizer.getPixelMaxY(bake));
+            if (minX <= maxX && minY <= maxY) {
+                faceCosts[minY - viewY] += maxX - minX + 1;
+                faceCosts[maxY + 1 - viewY] -= maxX - minX + 1;
+                for (int row = minY - viewY; row <= maxY - viewY; row++) {
+                    spanStarts[row] = Math.min(spanStarts[row], minX);
+                    spanEnds[row] = Math.max(spanEnds[row], maxX + 1);
+                }
+            }
+        }
+        int[] rows = new int[viewHeight];
+        long[] rowCosts = new long[viewHeight];
+        int rowCount = 0;
+        long faceCost = 0;
+        for (int i = 0; i < viewHeight; i++) {
+            faceCost += faceCosts[i];
+            if (spanStarts[i] < spanEnds[i]) {
+                rows[rowCount] = i;
+                rowCosts[rowCount++] = spanEnds[i] - spanStarts[i] + faceCost;
             }
         }
-        int w = source.getWidth();
-        int h = source.getHeight();
         double baseTranslateX = baseTransform.getTranslateX();
         double baseTranslateY = baseTransform.getTranslateY();
         double baseScaleX = baseTransform.getScaleX();
         double baseScaleY = -baseTransform.getScaleY();
-        DataBuffer dataBuffer = source.getRaster().getDataBuffer();
-        if (!(dataBuffer instanceof DataBufferInt)) {
-            throw new RuntimeException("This image is not compatible for rendering: Raster DataBuffer of BufferedImage is not a DataBufferInt");
-        }
-        int[] sourceColors = ((DataBufferInt) dataBuffer).getData();
-        int pixelCount = w * h;
-        int targetTaskCount = Math.max(1, Runtime.getRuntime().availableProcessors() * 4);
-        int pixelsPerTask = Math.max(PIXEL_PER_THREAD, (pixelCount + targetTaskCount - 1) / targetTaskCount);
-        List<Future<?>> futures = new ArrayList<>((pixelCount + pixelsPerTask - 1) / pixelsPerTask);
-        for (int i = 0; i < pixelCount; i += pixelsPerTask) {
-            int currentI = i;
-            int endI = Math.min(pixelCount, i + pixelsPerTask);
-            futures.add(service.submit(() -> {
-                double[] transformedPos = new double[2];
-                RTreeIterator<BakeResult> itr = bakes.queryIntersect(transformedPos, transformedPos);
-                int y = currentI / w;
-                int x = currentI - y * w;
-                for (int position = currentI; position < endI; position++) {
+        int[] sourceColors = target.getColors();
+        double[] depths = target.getDepths();
+        int[] depthTieBreakers = target.getDepthTieBreakers();
+        return new RenderScheduler(Arrays.copyOf(rowCosts, rowCount), (startRow, endRow) -> {
+            double[] transformedPos = new double[2];
+            RTreeIterator<BakeResult> itr = bakes.queryIntersect(transformedPos, transformedPos);
+            for (int i = startRow; i < endRow; i++) {
+                int row = rows[i];
+                int y = viewY + row;
+                int x = spanStarts[row];
+                for (int position = y * w + x; position < y * w + spanEnds[row]; position++) {
                     int sourceColor = sourceColors[position];
                     double reverseTransformedX = (x - baseTranslateX) / baseScaleX;
                     double reverseTransformedY = (y - baseTranslateY) / baseScaleY;
                     transformedPos[0] = reverseTransformedX;
                     transformedPos[1] = reverseTransformedY;
                     int newColor = sourceColor;
-                    double z = MathUtils.NEGATIVE_MAX_DOUBLE;
-                    int depthTieBreaker = Integer.MIN_VALUE;
+                    double z = depths == null ? MathUtils.NEGATIVE_MAX_DOUBLE : depths[position];
+                    int depthTieBreaker = depthTieBreakers == null ? Integer.MIN_VALUE : depthTieBreakers[position];
                     itr.reset(transformedPos, transformedPos);
                     while (itr.hasNext()) {
                         BakeResult bake = itr.next().value();
                         double textureX = bake.getInverseTransformedX(x, y);
                         double textureY = bake.getInverseTransformedY(x, y);
-                        BufferedImage image = bake.getTexture();
-                        if (!MathUtils.greaterThanOrEquals(textureX, 0.0) || !MathUtils.greaterThanOrEquals(textureY, 0.0) || !MathUtils.lessThan(textureX, image.getWidth()) || !MathUtils.lessThan(textureY, image.getHeight())) {
+                        int textureWidth = bake.getTextureWidth();
+                        if (!MathUtils.greaterThanOrEquals(textureX, 0.0) || !MathUtils.greaterThanOrEquals(textureY, 0.0) || !MathUtils.lessThan(textureX, textureWidth) || !MathUtils.lessThan(textureY, bake.getTextureHeight())) {
                             continue;
                         }
-                        int imageColor = bake.getTextureDataArray()[(int) textureX + ((int) textureY * image.getWidth())];
+                        int imageColor = bake.getSharedTextureData()[(int) textureX + ((int) textureY * textureWidth)];
                         if (useZBuffer) {
                             int imageAlpha = bake.isFullyOpaque() ? 255 : ColorUtils.getAlpha(imageColor);
                             if (imageAlpha > 0) {
@@ -212,14 +383,250 @@ public class Model implements ITransformable, Serializable {
                     if (newColor != sourceColor) {
                         sourceColors[position] = newColor;
                     }
+                    if (depths != null) {
+                        depths[position] = z;
+                        depthTieBreakers[position] = depthTieBreaker;
+                    }
                     x++;
-                    if (x >= w) {
-                        x = 0;
-                        y++;
+                }
+            }
+        });
+    }
+
+    private static RenderScheduler createScanlineScheduler(FaceBaker baker, RenderTarget target, Rectangle viewport, AffineTransform baseTransform, RenderOptions options) {
+        List<BakeResult> bakes = bakeFaces(baker, baseTransform, options, viewport);
+        Rasterizer rasterizer = new Rasterizer(baseTransform, options);
+        int samples = options.getSupersampling();
+        int viewX = viewport.x * samples;
+        int viewY = viewport.y * samples;
+        int w = viewport.width * samples;
+        int h = viewport.height * samples;
+        int targetBandCount = Math.max(1, Runtime.getRuntime().availableProcessors() * RenderScheduler.TASKS_PER_THREAD * 4);
+        int rowsPerTask = Math.max((PIXEL_PER_THREAD * samples + w - 1) / w, (viewport.height + targetBandCount - 1) / targetBandCount) * samples;
+        int[] faceBandCounts = new int[bakes.size()];
+        for (int i = 0; i < faceBandCounts.length; i++) {
+            BakeResult bake = bakes.get(i);
+            int minY = Math.max(0, rasterizer.getPixelMinY(bake) - viewY);
+            int maxY = Math.min(h - 1, rasterizer.getPixelMaxY(bake) - viewY);
+            boolean inView = rasterizer.getPixelMaxX(bake) >= viewX && rasterizer.getPixelMinX(bake) < viewX + w;
+            faceBandCounts[i] = minY > maxY || !inView ? 0 : maxY / rowsPerTask - minY / rowsPerTask + 1;
+        }
+        rasterizer.trackCulledFaces(faceBandCounts);
+        int bandCount = (h + rowsPerTask - 1) / rowsPerTask;
+        Rectangle[] bandAreas = new Rectangle[bandCount];
+        long[] bandCosts = new long[bandCount];
+        int coveredBandCount = 0;
+        for (int i = 0; i < bandCount; i++) {
+            int startY = viewY + i * rowsPerTask;
+            int endY = Math.min(viewY + h, startY + rowsPerTask);
+            Rectangle area = null;
+            long cost = 0;
+            for (BakeResult bake : bakes) {
+                area = addPixelBounds(area, rasterizer, bake, viewX, startY, viewX + w, endY);
+                cost += getPixelOverlap(rasterizer, bake, viewX, startY, viewX + w, endY);
+            }
+            if (area != null) {
+                area = alignToSamples(area, samples);
+                bandAreas[coveredBandCount] = area;
+                bandCosts[coveredBandCount++] = (long) area.width * area.height + cost;
+            }
+        }
+        return new RenderScheduler(Arrays.copyOf(bandCosts, coveredBandCount), (startBand, endBand) -> {
+            int[] faceIndices = new int[bakes.size()];
+            for (int band = startBand; band < endBand; band++) {
+                Rectangle area = bandAreas[band];
+                int startY = area.y;
+                int endY = area.y + area.height;
+                int faceCount = 0;
+                for (int u = 0; u < bakes.size(); u++) {
+                    BakeResult bake = bakes.get(u);
+                    if (rasterizer.getPixelMaxY(bake) >= startY && rasterizer.getPixelMinY(bake) < endY && rasterizer.getPixelMaxX(bake) >= viewX && rasterizer.getPixelMinX(bake) < viewX + w) {
+                        faceIndices[faceCount++] = u;
                     }
                 }
-            }));
+                RasterRegion region = new RasterRegion(area.x, area.y, area.width, area.height, samples);
+                region.load(target);
+                rasterizer.rasterize(bakes, faceIndices, 0, faceCount, region);
+                region.store(target);
+            }
+        });
+    }
+
+    private static RenderScheduler createTiledScheduler(FaceBaker baker, RenderTarget target, Rectangle viewport, AffineTransform baseTransform, RenderOptions options) {
+        List<BakeResult> bakes = bakeFaces(baker, baseTransform, options, viewport);
+        Rasterizer rasterizer = new Rasterizer(baseTransform, options);
+        int samples = options.getSupersampling();
+        int viewX = viewport.x * samples;
+        int viewY = viewport.y * samples;
+        int w = viewX + viewport.width * samples;
+        int h = viewY + viewport.height * samples;
+        int tileSize = Math.max(1, TILE_SIZE / samples) * samples;
+        TileBins bins = new TileBins(bakes, rasterizer, viewX, viewY, w, h, tileSize);
+        rasterizer.trackCulledFaces(bins.getFaceTileCounts());
+        int[] tiles = new int[bins.getTileCount()];
+        Rectangle[] tileAreas = new Rectangle[tiles.length];
+        long[] tileCosts = new long[tiles.length];
+        int tileCount = 0;
+        for (int tile = 0; tile < bins.getTileCount(); tile++) {
+            if (bins.isEmpty(tile)) {
+                continue;
+            }
+            int tileX = viewX + (tile % bins.getColumns()) * tileSize;
+            int tileY = viewY + (tile / bins.getColumns()) * tileSize;
+            int tileEndX = Math.min(w, tileX + tileSize);
+            int tileEndY = Math.min(h, tileY + tileSize);
+            Rectangle area = null;
+            long cost = 0;
+            for (int i = bins.getStart(tile); i < bins.getEnd(tile); i++) {
+                BakeResult bake = bakes.get(bins.getFaceIndices()[i]);
+                area = addPixelBounds(area, rasterizer, bake, tileX, tileY, tileEndX, tileEndY);
+                cost += getPixelOverlap(rasterizer, bake, tileX, tileY, tileEndX, tileEndY);
+            }
+            area = alignToSamples(area, samples);
+            tiles[tileCount] = tile;
+            tileAreas[tileCount] = area;
+            tileCosts[tileCount++] = (long) area.width * area.height + cost;
         }
-        return new TaskCompletion(futures);
+        return new RenderScheduler(Arrays.copyOf(tileCosts, tileCount), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                int tile = tiles[i];
+                Rectangle area = tileAreas[i];
+                RasterRegion region = new RasterRegion(area.x, area.y, area.width, area.height, samples);
+                region.load(target);
+                rasterizer.rasterize(bakes, bins.getFaceIndices(), bins.getStart(tile), bins.getEnd(tile), region);
+                region.store(target);
+            }
+        });
+    }
+
+    /**
+     * Adds the pixels the face may draw to within the area to the covered area, returns the covered area or null if
+     * nothing is covered yet.
+     */
+    private static Rectangle addPixelBounds(Rectangle covered, Rasterizer rasterizer, BakeResult bake, int startX, int startY, int endX, int endY) {
+        int minX = Math.max(startX, rasterizer.getPixelMinX(bake));
+        int minY = Math.max(startY, rasterizer.getPixelMinY(bake));
+        int maxX = Math.min(endX, rasterizer.getPixelMaxX(bake) + 1);
+        int maxY = Math.min(endY, rasterizer.getPixelMaxY(bake) + 1);
+        if (minX >= maxX || minY >= maxY) {
+            return covered;
+        }
+        Rectangle bounds = new Rectangle(minX, minY, maxX - minX, maxY - minY);
+        if (covered == null) {
+            return bounds;
+        }
+        covered.add(bounds);
+        return covered;
+    }
+
+    private static Rectangle alignToSamples(Rectangle area, int samples) {
+        if (samples == 1) {
+            return area;
+        }
+        int x = area.x / samples * samples;
+        int y = area.y / samples * samples;
+        int endX = (area.x + area.width + samples - 1) / samples * samples;
+        int endY = (area.y + area.height + samples - 1) / samples * samples;
+        return new Rectangle(x, y, endX - x, endY - y);
+    }
+
+    private static long getPixelOverlap(Rasterizer rasterizer, BakeResult bake, int startX, int startY, int endX, int endY) {
+        int width = Math.min(endX, rasterizer.getPixelMaxX(bake) + 1) - Math.max(startX, rasterizer.getPixelMinX(bake));
+        int height = Math.min(endY, rasterizer.getPixelMaxY(bake) + 1) - Math.max(startY, rasterizer.getPixelMinY(bake));
+        return width > 0 && height > 0 ? (long) width * height : 0;
     }
+
+    private static List<BakeResult> bakeFaces(FaceBaker baker, AffineTransform baseTransform, RenderOptions options, Rectangle viewport) {
+        List<BakeResult> bakes = baker.bakeFaces(baseTransform, options, getViewBounds(baseTransform, viewport, options.getSupersampling()));
+        if (options.getStatistics() != null) {
+            options.getStatistics().addFacesBaked(bakes.size());
+        }
+        return bakes;
+    }
+
+    List<BakeResult> bakeFaces(AffineTransform baseTransform, RenderOptions options, Rectangle2D viewBounds) {
+        ensureSorted();
+        List<BakeResult> bakes = new ArrayList<>(faces.size());
+        int backFacesCulled = 0;
+        int facesOutsideView = 0;
+        for (Face face : faces) {
+            if (face.getImage() == null) {
+                continue;
+            }
+            if (options.isBackFaceCulling() && face.isBackFacing()) {
+                backFacesCulled++;
+                continue;
+            }
+            if (viewBounds != null && isOutside(viewBounds, face.getMinX(), face.getMinY(), face.getMaxX(), face.getMaxY())) {
+                facesOutsideView++;
+                continue;
+            }
+            BakeResult result = face.bake(baseTransform);
+            if (result != null && result.hasInverseTransform()) {
+                bakes.add(result);
+            }
+        }
+        addCulledFaces(options, backFacesCulled, facesOutsideView);
+        return bakes;
+    }
+
+    static void addCulledFaces(RenderOptions options, int backFacesCulled, int facesOutsideView) {
+        RenderStatistics statistics = options.getStatistics();
+        if (statistics != null) {
+            statistics.addBackFacesCulled(backFacesCulled);
+            statistics.addFacesOutsideView(facesOutsideView);
+        }
+    }
+
+    /**
+     * Returns the area in the coordinates of the points of a model that can be drawn within the viewport, or null if the
+     * transform rotates or shears the points.
+     */
+    static Rectangle2D getViewBounds(AffineTransform baseTransform, Rectangle viewport, int samples) {
+        double scaleX = baseTransform.getScaleX();
+        double scaleY = -baseTransform.getScaleY();
+        if (baseTransform.getShearX() != 0 || baseTransform.getShearY() != 0 || scaleX == 0 || scaleY == 0) {
+            return null;
+        }
+        double translateX = baseTransform.getTranslateX();
+        double translateY = baseTransform.getTranslateY();
+        double startX = (viewport.x * samples - VIEW_BOUNDS_MARGIN - translateX) / scaleX;
+        double endX = ((viewport.x + viewport.width) * samples + VIEW_BOUNDS_MARGIN - translateX) / scaleX;
+        double startY = (viewport.y * samples - VIEW_BOUNDS_MARGIN - translateY) / scaleY;
+        double endY = ((viewport.y + viewport.height) * samples + VIEW_BOUNDS_MARGIN - translateY) / scaleY;
+        return new Rectangle2D.Double(Math.min(startX, endX), Math.min(startY, endY), Math.abs(endX - startX), Math.abs(endY - startY));
+    }
+
+    static boolean isOutside(Rectangle2D viewBounds, Point3D[] points) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Point3D point : points) {
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+            maxX = Math.max(maxX, point.x);
+            maxY = Math.max(maxY, point.y);
+        }
+        return isOutside(viewBounds, minX, minY, maxX, maxY);
+    }
+
+    static boolean isOutside(Rectangle2D viewBounds, double minX, double minY, double maxX, double maxY) {
+        return maxX < viewBounds.getMinX() || minX > viewBounds.getMaxX() || maxY < viewBounds.getMinY() || minY > viewBounds.getMaxY();
+    }
+
+    List<Face> getSortedFaces() {
+        ensureSorted();
+        return faces;
+    }
+
+    interface FaceBaker {
+
+        /**
+         * Faces entirely outside of the view bounds are skipped, the view bounds may be null.
+         */
+        List<BakeResult> bakeFaces(AffineTransform baseTransform, RenderOptions options, Rectangle2D viewBounds);
+
+    }
+
 }
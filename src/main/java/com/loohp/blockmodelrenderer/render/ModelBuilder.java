@@ -0,0 +1,123 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.loohp.blockmodelrenderer.render;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Assembles a {@link Model} from many components and models. Faces are only sorted once when the model is built,
+ * the already sorted faces of each added component and model are merged instead of sorting all faces again.
+ * Added components and models are shared with the built model, not copied.
+ */
+public class ModelBuilder {
+
+    private final List<Part> parts;
+    private int componentCount;
+    private boolean cullHiddenFaces;
+
+    public ModelBuilder() {
+        this(16);
+    }
+
+    public ModelBuilder(int expectedComponents) {
+        if (expectedComponents < 0) {
+            throw new IllegalArgumentException("expectedComponents cannot be negative");
+        }
+        this.parts = new ArrayList<>(expectedComponents);
+        this.componentCount = 0;
+        this.cullHiddenFaces = false;
+    }
+
+    public ModelBuilder add(Hexahedron hexahedron) {
+        parts.add((components, faces) -> {
+            components.add(hexahedron);
+            faces.addAll(hexahedron.getFacesByAverageZ());
+        });
+        componentCount++;
+        return this;
+    }
+
+    public ModelBuilder add(Hexahedron... hexahedrons) {
+        for (Hexahedron hexahedron : hexahedrons) {
+            add(hexahedron);
+        }
+        return this;
+    }
+
+    public ModelBuilder addAll(Collection<Hexahedron> hexahedrons) {
+        for (Hexahedron hexahedron : hexahedrons) {
+            add(hexahedron);
+        }
+        return this;
+    }
+
+    public ModelBuilder add(Model model) {
+        parts.add((components, faces) -> {
+            components.addAll(model.getComponents());
+            faces.addAll(model.getSortedFaces());
+        });
+        componentCount += model.getComponents().size();
+        return this;
+    }
+
+    public boolean isCullHiddenFaces() {
+        return cullHiddenFaces;
+    }
+
+    /**
+     * Runs {@link Model#cullHiddenFaces()} on the built model, faces of added components and models are modified.
+     */
+    public ModelBuilder setCullHiddenFaces(boolean cullHiddenFaces) {
+        this.cullHiddenFaces = cullHiddenFaces;
+        return this;
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    public Model build() {
+        List<Hexahedron> components = new ArrayList<>(componentCount);
+        List<Face> faces = new ArrayList<>(componentCount * 6);
+        int[] runEnds = new int[parts.size()];
+        for (int i = 0; i < runEnds.length; i++) {
+            parts.get(i).build(components, faces);
+            runEnds[i] = faces.size();
+        }
+        DepthSort.mergeRuns(faces, runEnds, runEnds.length);
+        Model model = new Model(components, faces);
+        if (cullHiddenFaces) {
+            model.cullHiddenFaces();
+        }
+        return model;
+    }
+
+    /**
+     * An added component or model, adding its components and its faces sorted by depth to the model being built.
+     */
+    private interface Part {
+
+        void build(List<Hexahedron> components, List<Face> faces);
+
+    }
+
+}
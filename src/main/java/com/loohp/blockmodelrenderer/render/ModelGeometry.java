@@ -0,0 +1,107 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.blending.BlendingModes;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the faces of a model, shared by any number of {@link ModelInstance}s.
+ * Later changes to the model do not affect the snapshot. Cullfaces and opposite faces outside of the model are ignored.
+ */
+public final class ModelGeometry {
+
+    final int size;
+    final Point3D[][] points;
+    final double[] averageZ;
+    final BufferedImage[] textures;
+    final BufferedImage[][] overlays;
+    final BlendingModes[][] overlayBlendingModes;
+    final byte[] priorities;
+    final double[] lightRatios;
+    final int[] cullfaces;
+    final int[] oppositeFaces;
+    final boolean[] doubleSided;
+    private final List<BufferedImage> distinctTextures;
+
+    public ModelGeometry(Model model) {
+        List<Face> faces = model.getSortedFaces();
+        this.size = faces.size();
+        this.points = new Point3D[size][];
+        this.averageZ = new double[size];
+        this.textures = new BufferedImage[size];
+        this.overlays = new BufferedImage[size][];
+        this.overlayBlendingModes = new BlendingModes[size][];
+        this.priorities = new byte[size];
+        this.lightRatios = new double[size];
+        this.cullfaces = new int[size];
+        this.oppositeFaces = new int[size];
+        this.doubleSided = new boolean[size];
+        Map<Face, Integer> indices = new IdentityHashMap<>();
+        Map<BufferedImage, Boolean> distinctTextures = new IdentityHashMap<>();
+        for (int i = 0; i < size; i++) {
+            Face face = faces.get(i);
+            Point3D[] facePoints = face.getPoints();
+            points[i] = new Point3D[facePoints.length];
+            for (int u = 0; u < facePoints.length; u++) {
+                points[i][u] = facePoints[u].clone();
+            }
+            averageZ[i] = face.getAverageZ();
+            textures[i] = face.getImage();
+            overlays[i] = face.getOverlay() == null ? null : face.getOverlay().clone();
+            overlayBlendingModes[i] = face.getOverlayBlendingMode() == null ? null : face.getOverlayBlendingMode().clone();
+            priorities[i] = face.getPriority();
+            lightRatios[i] = face.getLightRatio();
+            doubleSided[i] = face.isDoubleSided();
+            indices.put(face, i);
+            if (textures[i] != null) {
+                distinctTextures.put(textures[i], true);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            Face cullface = faces.get(i).getCullface();
+            Integer index = cullface == null ? null : indices.get(cullface);
+            cullfaces[i] = index == null ? -1 : index;
+            Face oppositeFace = faces.get(i).getOppositeFace();
+            index = oppositeFace == null ? null : indices.get(oppositeFace);
+            oppositeFaces[i] = index == null ? -1 : index;
+        }
+        this.distinctTextures = Collections.unmodifiableList(new ArrayList<>(distinctTextures.keySet()));
+    }
+
+    public int getFaceCount() {
+        return size;
+    }
+
+    /**
+     * Returns each distinct texture used by the faces, these are the keys for {@link ModelInstance#setTexture(BufferedImage, BufferedImage)}.
+     */
+    public List<BufferedImage> getTextures() {
+        return distinctTextures;
+    }
+
+}
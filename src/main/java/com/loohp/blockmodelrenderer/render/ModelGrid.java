@@ -0,0 +1,164 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.utils.TaskCompletion;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Lays out models in a grid of equally sized cells and draws each of them straight into its cell of one shared target.
+ * The transform of every cell is relative to the top left corner of the cell and drawing is clipped to the cell.
+ */
+public class ModelGrid {
+
+    private final int columns;
+    private final int rows;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final Cell[] cells;
+    private int originX;
+    private int originY;
+    private int horizontalSpacing;
+    private int verticalSpacing;
+
+    public ModelGrid(int columns, int rows, int cellWidth, int cellHeight) {
+        if (columns <= 0 || rows <= 0 || cellWidth <= 0 || cellHeight <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.cells = new Cell[columns * rows];
+        this.originX = 0;
+        this.originY = 0;
+        this.horizontalSpacing = 0;
+        this.verticalSpacing = 0;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    public ModelGrid setOrigin(int originX, int originY) {
+        this.originX = originX;
+        this.originY = originY;
+        return this;
+    }
+
+    public ModelGrid setSpacing(int horizontalSpacing, int verticalSpacing) {
+        this.horizontalSpacing = horizontalSpacing;
+        this.verticalSpacing = verticalSpacing;
+        return this;
+    }
+
+    public int getWidth() {
+        return originX + columns * cellWidth + (columns - 1) * horizontalSpacing;
+    }
+
+    public int getHeight() {
+        return originY + rows * cellHeight + (rows - 1) * verticalSpacing;
+    }
+
+    public Rectangle getCellBounds(int column, int row) {
+        checkCell(column, row);
+        return new Rectangle(originX + column * (cellWidth + horizontalSpacing), originY + row * (cellHeight + verticalSpacing), cellWidth, cellHeight);
+    }
+
+    public ModelGrid set(int column, int row, Model model, AffineTransform cellTransform, RenderOptions options) {
+        checkCell(column, row);
+        cells[row * columns + column] = model == null ? null : new Cell(model, cellTransform == null ? new AffineTransform() : cellTransform, options == null ? new RenderOptions() : options);
+        return this;
+    }
+
+    public ModelGrid remove(int column, int row) {
+        return set(column, row, null, null, null);
+    }
+
+    public RenderBatch toBatch(RenderTarget target) {
+        RenderBatch batch = new RenderBatch();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                Cell cell = cells[row * columns + column];
+                if (cell == null) {
+                    continue;
+                }
+                Rectangle bounds = getCellBounds(column, row);
+                AffineTransform transform = AffineTransform.getTranslateInstance(bounds.x, bounds.y);
+                transform.concatenate(cell.transform);
+                Rectangle clip = cell.options.getClip() == null ? bounds : bounds.intersection(cell.options.getClip());
+                batch.add(cell.model, target, transform, cell.options.copy().setClip(clip));
+            }
+        }
+        return batch;
+    }
+
+    public TaskCompletion render(BufferedImage target, RenderOptions options, ExecutorService service) {
+        return render(new RenderTarget(target, false), options, service);
+    }
+
+    public TaskCompletion render(RenderTarget target, RenderOptions options, ExecutorService service) {
+        return new TaskCompletion(Collections.singletonList(renderAsync(target, options, service)));
+    }
+
+    public CompletableFuture<Void> renderAsync(RenderTarget target, RenderOptions options, ExecutorService service) {
+        return toBatch(target).renderAsync(options, service);
+    }
+
+    private void checkCell(int column, int row) {
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Cell (" + column + ", " + row + ") is outside of a " + columns + "x" + rows + " grid");
+        }
+    }
+
+    private static class Cell {
+
+        private final Model model;
+        private final AffineTransform transform;
+        private final RenderOptions options;
+
+        private Cell(Model model, AffineTransform transform, RenderOptions options) {
+            this.model = model;
+            this.transform = transform;
+            this.options = options;
+        }
+
+    }
+
+}
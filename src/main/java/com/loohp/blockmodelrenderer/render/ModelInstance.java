@@ -0,0 +1,327 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.utils.ColorUtils;
+import com.loohp.blockmodelrenderer.utils.TaskCompletion;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Draws a shared {@link ModelGeometry} with its own transform, texture substitutions, tint and lighting.
+ * Transforms are accumulated into a single matrix applied to the shared points when the instance is baked,
+ * rotations use the axes of the instance which start out as the world axes. The transformed points and their depth
+ * order are kept until the instance is transformed again.
+ */
+public class ModelInstance implements ITransformable {
+
+    public static final int NO_TINT = 0xFFFFFFFF;
+
+    private final ModelGeometry geometry;
+    private final Map<BufferedImage, BufferedImage> textures;
+    private final Map<BufferedImage, BufferedImage> tintedTextures;
+    private final Vector[] axis;
+    private double[] transform;
+    private volatile Transformed transformed;
+    private double[] lightRatios;
+    private int tint;
+
+    public ModelInstance(ModelGeometry geometry) {
+        this.geometry = geometry;
+        this.textures = new ConcurrentHashMap<>();
+        this.tintedTextures = new ConcurrentHashMap<>();
+        this.axis = new Vector[] {new Vector(1, 0, 0), new Vector(0, 1, 0), new Vector(0, 0, 1)};
+        this.transform = null;
+        this.transformed = null;
+        this.lightRatios = null;
+        this.tint = NO_TINT;
+    }
+
+    public ModelGeometry getGeometry() {
+        return geometry;
+    }
+
+    public BufferedImage getTexture(BufferedImage texture) {
+        return textures.getOrDefault(texture, texture);
+    }
+
+    /**
+     * Draws every face textured with the original texture using the replacement instead, or restores the original if the
+     * replacement is null.
+     */
+    public ModelInstance setTexture(BufferedImage original, BufferedImage replacement) {
+        if (replacement == null) {
+            textures.remove(original);
+        } else {
+            textures.put(original, replacement);
+        }
+        tintedTextures.clear();
+        return this;
+    }
+
+    public int getTint() {
+        return tint;
+    }
+
+    /**
+     * Multiplies the color channels of every texture by the channels of the tint, {@link #NO_TINT} leaves textures unchanged.
+     */
+    public ModelInstance setTint(int tint) {
+        this.tint = tint;
+        tintedTextures.clear();
+        return this;
+    }
+
+    @Override
+    public void rotate(double x, double y, double z, boolean saveAxis) {
+        Rotation rotation = new Rotation(x, y, z);
+        double[] matrix = rotation.getMatrix(axis);
+        double[] transform = getTransform();
+        double[] result = new double[12];
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 4; column++) {
+                result[row * 4 + column] = matrix[row * 3] * transform[column] + matrix[row * 3 + 1] * transform[4 + column] + matrix[row * 3 + 2] * transform[8 + column];
+            }
+        }
+        this.transform = result;
+        this.transformed = null;
+        if (saveAxis) {
+            rotation.rotateAxis(axis);
+        }
+    }
+
+    @Override
+    public void translate(double x, double y, double z) {
+        double[] transform = getTransform();
+        transform[3] += x;
+        transform[7] += y;
+        transform[11] += z;
+        this.transform = transform;
+        this.transformed = null;
+    }
+
+    @Override
+    public void scale(double x, double y, double z) {
+        double[] transform = getTransform();
+        for (int column = 0; column < 4; column++) {
+            transform[column] *= x;
+            transform[4 + column] *= y;
+            transform[8 + column] *= z;
+        }
+        this.transform = transform;
+        this.transformed = null;
+    }
+
+    @Override
+    public void flipAboutPlane(boolean x, boolean y, boolean z) {
+        double[] transform = getTransform();
+        for (int column = 0; column < 4; column++) {
+            if (y && z) {
+                transform[column] = -transform[column];
+            }
+            if (x && z) {
+                transform[4 + column] = -transform[4 + column];
+            }
+            if (x && y) {
+                transform[8 + column] = -transform[8 + column];
+            }
+        }
+        this.transform = transform;
+        this.transformed = null;
+    }
+
+    @Override
+    public void updateLighting(Vector direction, double ambient, double max) {
+        Point3D[][] points = getTransformed().points;
+        double[] lightRatios = new double[geometry.size];
+        for (int i = 0; i < lightRatios.length; i++) {
+            lightRatios[i] = Face.getLightRatio(points[i], direction, ambient, max);
+        }
+        this.lightRatios = lightRatios;
+    }
+
+    public TaskCompletion render(BufferedImage source, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return render(new RenderTarget(source, false), baseTransform, options, service);
+    }
+
+    public TaskCompletion render(RenderTarget target, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return Model.render(this::bakeFaces, target, baseTransform, options, service);
+    }
+
+    public CompletableFuture<BufferedImage> renderAsync(BufferedImage source, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return renderAsync(new RenderTarget(source, false), baseTransform, options, service);
+    }
+
+    public CompletableFuture<BufferedImage> renderAsync(RenderTarget target, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        return Model.renderAsync(this::bakeFaces, target, baseTransform, options, service);
+    }
+
+    List<BakeResult> bakeFaces(AffineTransform baseTransform, RenderOptions options, Rectangle2D viewBounds) {
+        ModelGeometry geometry = this.geometry;
+        double[] lightRatios = this.lightRatios == null ? geometry.lightRatios : this.lightRatios;
+        Transformed transformed = getTransformed();
+        Point3D[][] points = transformed.points;
+        double[] averageZ = transformed.averageZ;
+        int[] order = transformed.order;
+        List<BakeResult> bakes = new ArrayList<>(order.length);
+        int backFacesCulled = 0;
+        int facesOutsideView = 0;
+        for (int i : order) {
+            BufferedImage texture = geometry.textures[i];
+            if (texture == null) {
+                continue;
+            }
+            int oppositeFace = geometry.oppositeFaces[i];
+            if (options.isBackFaceCulling() && oppositeFace >= 0 && !geometry.doubleSided[i]) {
+                double[][] metrics = transformed.getMetrics();
+                if (Face.isBackFacing(metrics[i], metrics[oppositeFace])) {
+                    backFacesCulled++;
+                    continue;
+                }
+            }
+            if (viewBounds != null && Model.isOutside(viewBounds, points[i])) {
+                facesOutsideView++;
+                continue;
+            }
+            int cullface = geometry.cullfaces[i];
+            if (cullface >= 0 && Face.isCulledBy(averageZ[i], geometry.priorities[i], averageZ[cullface], geometry.priorities[cullface])) {
+                continue;
+            }
+            BakeResult result = Face.bake(points[i], resolveTexture(texture), lightRatios[i], geometry.overlays[i], geometry.overlayBlendingModes[i], geometry.priorities[i], baseTransform);
+            if (result.hasInverseTransform()) {
+                bakes.add(result);
+            }
+        }
+        Model.addCulledFaces(options, backFacesCulled, facesOutsideView);
+        return bakes;
+    }
+
+    private BufferedImage resolveTexture(BufferedImage texture) {
+        BufferedImage replacement = textures.getOrDefault(texture, texture);
+        if (tint == NO_TINT) {
+            return replacement;
+        }
+        return tintedTextures.computeIfAbsent(replacement, this::tint);
+    }
+
+    private BufferedImage tint(BufferedImage texture) {
+        int width = texture.getWidth();
+        int height = texture.getHeight();
+        int[] colors = texture.getRGB(0, 0, width, height, null, 0, width);
+        int tintRed = ColorUtils.getRed(tint);
+        int tintGreen = ColorUtils.getGreen(tint);
+        int tintBlue = ColorUtils.getBlue(tint);
+        int tintAlpha = ColorUtils.getAlpha(tint);
+        for (int i = 0; i < colors.length; i++) {
+            int color = colors[i];
+            colors[i] = ColorUtils.getIntFromColor(ColorUtils.getRed(color) * tintRed / 255, ColorUtils.getGreen(color) * tintGreen / 255, ColorUtils.getBlue(color) * tintBlue / 255, ColorUtils.getAlpha(color) * tintAlpha / 255);
+        }
+        BufferedImage tinted = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        tinted.setRGB(0, 0, width, height, colors, 0, width);
+        return tinted;
+    }
+
+    private Transformed getTransformed() {
+        double[] transform = this.transform;
+        Transformed transformed = this.transformed;
+        if (transformed == null || transformed.transform != transform) {
+            transformed = new Transformed(geometry, transform, getPoints(transform));
+            this.transformed = transformed;
+        }
+        return transformed;
+    }
+
+    private Point3D[][] getPoints(double[] transform) {
+        if (transform == null) {
+            return geometry.points;
+        }
+        Point3D[][] points = new Point3D[geometry.size][];
+        for (int i = 0; i < points.length; i++) {
+            Point3D[] facePoints = geometry.points[i];
+            points[i] = new Point3D[facePoints.length];
+            for (int u = 0; u < facePoints.length; u++) {
+                double x = facePoints[u].x;
+                double y = facePoints[u].y;
+                double z = facePoints[u].z;
+                points[i][u] = new Point3D(transform[0] * x + transform[1] * y + transform[2] * z + transform[3], transform[4] * x + transform[5] * y + transform[6] * z + transform[7], transform[8] * x + transform[9] * y + transform[10] * z + transform[11]);
+            }
+        }
+        return points;
+    }
+
+    private double[] getTransform() {
+        double[] transform = this.transform;
+        if (transform == null) {
+            return new double[] {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0};
+        }
+        return transform.clone();
+    }
+
+    private static class Transformed {
+
+        private final double[] transform;
+        private final Point3D[][] points;
+        private final double[] averageZ;
+        private final int[] order;
+        private volatile double[][] metrics;
+
+        private Transformed(ModelGeometry geometry, double[] transform, Point3D[][] points) {
+            this.transform = transform;
+            this.points = points;
+            if (points == geometry.points) {
+                this.averageZ = geometry.averageZ;
+            } else {
+                this.averageZ = new double[geometry.size];
+                for (int i = 0; i < averageZ.length; i++) {
+                    averageZ[i] = Face.getAverageZ(points[i]);
+                }
+            }
+            this.order = new int[geometry.size];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            DepthSort.sort(order, averageZ);
+            this.metrics = null;
+        }
+
+        private double[][] getMetrics() {
+            double[][] metrics = this.metrics;
+            if (metrics == null) {
+                metrics = new double[points.length][];
+                for (int i = 0; i < metrics.length; i++) {
+                    metrics[i] = Face.computeMetrics(points[i]);
+                }
+                this.metrics = metrics;
+            }
+            return metrics;
+        }
+
+    }
+
+}
@@ -0,0 +1,315 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.utils.ColorUtils;
+import com.loohp.blockmodelrenderer.utils.MathUtils;
+
+import java.util.Arrays;
+
+class RasterRegion {
+
+    public static final int DEPTH_CELL_SHIFT = 3;
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final int samples;
+    private final int[] colors;
+    private final int[] sourceColors;
+    private final double[] depths;
+    private final int[] depthTieBreakers;
+    private final int depthLevels;
+    private final int[] depthColumns;
+    private final int[] depthRows;
+    private final int[][] depthCoveredCounts;
+    private final double[][] depthMins;
+    private final boolean[][] depthMinsDirty;
+
+    RasterRegion(int x, int y, int width, int height) {
+        this(x, y, width, height, 1);
+    }
+
+    RasterRegion(int x, int y, int width, int height, int samples) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.samples = samples;
+        int size = width * height;
+        this.colors = new int[size];
+        this.sourceColors = new int[size];
+        this.depths = new double[size];
+        this.depthTieBreakers = new int[size];
+        int levels = 1;
+        while (((width - 1) >> (DEPTH_CELL_SHIFT + levels - 1)) > 0 || ((height - 1) >> (DEPTH_CELL_SHIFT + levels - 1)) > 0) {
+            levels++;
+        }
+        this.depthLevels = levels;
+        this.depthColumns = new int[levels];
+        this.depthRows = new int[levels];
+        this.depthCoveredCounts = new int[levels][];
+        this.depthMins = new double[levels][];
+        this.depthMinsDirty = new boolean[levels][];
+        for (int level = 0; level < levels; level++) {
+            int shift = DEPTH_CELL_SHIFT + level;
+            depthColumns[level] = ((width - 1) >> shift) + 1;
+            depthRows[level] = ((height - 1) >> shift) + 1;
+            int cells = depthColumns[level] * depthRows[level];
+            depthCoveredCounts[level] = new int[cells];
+            depthMins[level] = new double[cells];
+            depthMinsDirty[level] = new boolean[cells];
+        }
+    }
+
+    public void load(RenderTarget target) {
+        int[] targetColors = target.getColors();
+        int targetWidth = target.getWidth();
+        if (samples == 1) {
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(targetColors, (y + row) * targetWidth + x, colors, row * width, width);
+            }
+        } else {
+            loadSamples(targetColors, colors, targetWidth);
+        }
+        System.arraycopy(colors, 0, sourceColors, 0, colors.length);
+        for (int level = 0; level < depthLevels; level++) {
+            Arrays.fill(depthCoveredCounts[level], 0);
+            Arrays.fill(depthMins[level], MathUtils.NEGATIVE_MAX_DOUBLE);
+            Arrays.fill(depthMinsDirty[level], false);
+        }
+        if (target.hasDepthBuffer()) {
+            double[] targetDepths = target.getDepths();
+            int[] targetDepthTieBreakers = target.getDepthTieBreakers();
+            if (samples == 1) {
+                for (int row = 0; row < height; row++) {
+                    System.arraycopy(targetDepths, (y + row) * targetWidth + x, depths, row * width, width);
+                    System.arraycopy(targetDepthTieBreakers, (y + row) * targetWidth + x, depthTieBreakers, row * width, width);
+                }
+            } else {
+                for (int row = 0; row < height; row++) {
+                    int targetOffset = ((y + row) / samples) * targetWidth;
+                    for (int column = 0; column < width; column++) {
+                        depths[row * width + column] = targetDepths[targetOffset + (x + column) / samples];
+                        depthTieBreakers[row * width + column] = targetDepthTieBreakers[targetOffset + (x + column) / samples];
+                    }
+                }
+            }
+            boolean covered = false;
+            for (int i = 0; i < depths.length; i++) {
+                if (depths[i] != MathUtils.NEGATIVE_MAX_DOUBLE) {
+                    markCovered(i % width, i / width);
+                    covered = true;
+                }
+            }
+            if (covered) {
+                markDepthChanged(0, 0, width - 1, height - 1);
+            }
+        } else {
+            Arrays.fill(depths, MathUtils.NEGATIVE_MAX_DOUBLE);
+            Arrays.fill(depthTieBreakers, Integer.MIN_VALUE);
+        }
+    }
+
+    public void store(RenderTarget target) {
+        int[] targetColors = target.getColors();
+        int targetWidth = target.getWidth();
+        if (samples == 1) {
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(colors, row * width, targetColors, (y + row) * targetWidth + x, width);
+            }
+        } else {
+            resolveSamples(targetColors, targetWidth);
+        }
+        if (target.hasDepthBuffer()) {
+            double[] targetDepths = target.getDepths();
+            int[] targetDepthTieBreakers = target.getDepthTieBreakers();
+            if (samples == 1) {
+                for (int row = 0; row < height; row++) {
+                    System.arraycopy(depths, row * width, targetDepths, (y + row) * targetWidth + x, width);
+                    System.arraycopy(depthTieBreakers, row * width, targetDepthTieBreakers, (y + row) * targetWidth + x, width);
+                }
+            } else {
+                int center = samples / 2;
+                for (int pixelY = y / samples; pixelY < (y + height) / samples; pixelY++) {
+                    for (int pixelX = x / samples; pixelX < (x + width) / samples; pixelX++) {
+                        int index = (pixelY * samples + center - y) * width + (pixelX * samples + center - x);
+                        targetDepths[pixelY * targetWidth + pixelX] = depths[index];
+                        targetDepthTieBreakers[pixelY * targetWidth + pixelX] = depthTieBreakers[index];
+                    }
+                }
+            }
+        }
+    }
+
+    private void loadSamples(int[] targetColors, int[] colors, int targetWidth) {
+        for (int row = 0; row < height; row++) {
+            int targetOffset = ((y + row) / samples) * targetWidth;
+            for (int column = 0; column < width; column++) {
+                colors[row * width + column] = targetColors[targetOffset + (x + column) / samples];
+            }
+        }
+    }
+
+    private void resolveSamples(int[] targetColors, int targetWidth) {
+        int sampleCount = samples * samples;
+        for (int pixelY = y / samples; pixelY < (y + height) / samples; pixelY++) {
+            for (int pixelX = x / samples; pixelX < (x + width) / samples; pixelX++) {
+                int offset = (pixelY * samples - y) * width + (pixelX * samples - x);
+                int first = colors[offset];
+                boolean uniform = true;
+                long alpha = 0;
+                long red = 0;
+                long green = 0;
+                long blue = 0;
+                for (int sampleY = 0; sampleY < samples; sampleY++) {
+                    for (int sampleX = 0; sampleX < samples; sampleX++) {
+                        int color = colors[offset + sampleY * width + sampleX];
+                        if (color != first) {
+                            uniform = false;
+                        }
+                        int sampleAlpha = ColorUtils.getAlpha(color);
+                        alpha += sampleAlpha;
+                        red += (long) ColorUtils.getRed(color) * sampleAlpha;
+                        green += (long) ColorUtils.getGreen(color) * sampleAlpha;
+                        blue += (long) ColorUtils.getBlue(color) * sampleAlpha;
+                    }
+                }
+                int targetIndex = pixelY * targetWidth + pixelX;
+                if (uniform) {
+                    targetColors[targetIndex] = first;
+                } else if (alpha == 0) {
+                    targetColors[targetIndex] = 0;
+                } else {
+                    targetColors[targetIndex] = ColorUtils.getIntFromColor((int) (red / alpha), (int) (green / alpha), (int) (blue / alpha), (int) ((alpha + sampleCount / 2) / sampleCount));
+                }
+            }
+        }
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public int[] getColors() {
+        return colors;
+    }
+
+    public int[] getSourceColors() {
+        return sourceColors;
+    }
+
+    public double[] getDepths() {
+        return depths;
+    }
+
+    public int[] getDepthTieBreakers() {
+        return depthTieBreakers;
+    }
+
+    public void markCovered(int localX, int localY) {
+        for (int level = 0; level < depthLevels; level++) {
+            int shift = DEPTH_CELL_SHIFT + level;
+            depthCoveredCounts[level][(localY >> shift) * depthColumns[level] + (localX >> shift)]++;
+        }
+    }
+
+    public void markDepthChanged(int minLocalX, int minLocalY, int maxLocalX, int maxLocalY) {
+        for (int level = 0; level < depthLevels; level++) {
+            int shift = DEPTH_CELL_SHIFT + level;
+            int columns = depthColumns[level];
+            boolean[] dirty = depthMinsDirty[level];
+            for (int cellY = minLocalY >> shift; cellY <= maxLocalY >> shift; cellY++) {
+                for (int cellX = minLocalX >> shift; cellX <= maxLocalX >> shift; cellX++) {
+                    dirty[cellY * columns + cellX] = true;
+                }
+            }
+        }
+    }
+
+    public int getDepthLevels() {
+        return depthLevels;
+    }
+
+    public int getDepthColumns(int level) {
+        return depthColumns[level];
+    }
+
+    public int getDepthRows(int level) {
+        return depthRows[level];
+    }
+
+    public boolean isDepthCellCovered(int level, int cellX, int cellY) {
+        int shift = DEPTH_CELL_SHIFT + level;
+        int cellWidth = Math.min(1 << shift, width - (cellX << shift));
+        int cellHeight = Math.min(1 << shift, height - (cellY << shift));
+        return depthCoveredCounts[level][cellY * depthColumns[level] + cellX] >= cellWidth * cellHeight;
+    }
+
+    public double getDepthCellMin(int level, int cellX, int cellY) {
+        int cell = cellY * depthColumns[level] + cellX;
+        if (!depthMinsDirty[level][cell]) {
+            return depthMins[level][cell];
+        }
+        double min = Double.MAX_VALUE;
+        if (level == 0) {
+            int startX = cellX << DEPTH_CELL_SHIFT;
+            int startY = cellY << DEPTH_CELL_SHIFT;
+            int endX = Math.min(width, startX + (1 << DEPTH_CELL_SHIFT));
+            int endY = Math.min(height, startY + (1 << DEPTH_CELL_SHIFT));
+            for (int y = startY; y < endY; y++) {
+                for (int x = startX; x < endX; x++) {
+                    min = Math.min(min, depths[y * width + x]);
+                }
+            }
+        } else {
+            int childLevel = level - 1;
+            int endX = Math.min(depthColumns[childLevel], cellX * 2 + 2);
+            int endY = Math.min(depthRows[childLevel], cellY * 2 + 2);
+            for (int y = cellY * 2; y < endY; y++) {
+                for (int x = cellX * 2; x < endX; x++) {
+                    min = Math.min(min, getDepthCellMin(childLevel, x, y));
+                }
+            }
+        }
+        depthMins[level][cell] = min;
+        depthMinsDirty[level][cell] = false;
+        return min;
+    }
+
+}
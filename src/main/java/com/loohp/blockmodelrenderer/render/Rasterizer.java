@@ -0,0 +1,335 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.blending.BlendingModes;
+import com.loohp.blockmodelrenderer.utils.ColorUtils;
+import com.loohp.blockmodelrenderer.utils.MathUtils;
+
+import java.awt.geom.AffineTransform;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+class Rasterizer {
+
+    public static final double HIDDEN_FACE_DEPTH_EPSILON = 0.001;
+
+    private final double baseTranslateX;
+    private final double baseTranslateY;
+    private final double baseScaleX;
+    private final double baseScaleY;
+    private final boolean useZBuffer;
+    private final BlendingModes blendingMode;
+    private final boolean frontToBack;
+    private final boolean edgeAntialiasing;
+    private final boolean mipmapping;
+    private final TextureFilter textureFilter;
+    private final RenderStatistics statistics;
+    private int[] dispatchedRegions;
+    private AtomicIntegerArray culledRegions;
+
+    Rasterizer(AffineTransform baseTransform, RenderOptions options) {
+        this.baseTranslateX = baseTransform.getTranslateX();
+        this.baseTranslateY = baseTransform.getTranslateY();
+        this.baseScaleX = baseTransform.getScaleX();
+        this.baseScaleY = -baseTransform.getScaleY();
+        this.useZBuffer = options.isUseZBuffer();
+        this.blendingMode = options.getBlendingMode();
+        this.edgeAntialiasing = options.isEdgeAntialiasing();
+        this.mipmapping = options.isMipmapping();
+        this.textureFilter = options.getTextureFilter();
+        this.frontToBack = useZBuffer && options.isFrontToBack() && blendingMode == BlendingModes.NORMAL && !edgeAntialiasing;
+        this.statistics = options.getStatistics();
+        this.dispatchedRegions = null;
+        this.culledRegions = null;
+    }
+
+    public void trackCulledFaces(int[] dispatchedRegions) {
+        if (statistics != null) {
+            this.dispatchedRegions = dispatchedRegions;
+            this.culledRegions = new AtomicIntegerArray(dispatchedRegions.length);
+        }
+    }
+
+    public int getPixelMinY(BakeResult bake) {
+        return (int) Math.floor(Math.min(bake.getMinY() * baseScaleY + baseTranslateY, bake.getMaxY() * baseScaleY + baseTranslateY)) - 1;
+    }
+
+    public int getPixelMaxY(BakeResult bake) {
+        return (int) Math.ceil(Math.max(bake.getMinY() * baseScaleY + baseTranslateY, bake.getMaxY() * baseScaleY + baseTranslateY)) + 1;
+    }
+
+    public int getPixelMinX(BakeResult bake) {
+        return (int) Math.floor(Math.min(bake.getMinX() * baseScaleX + baseTranslateX, bake.getMaxX() * baseScaleX + baseTranslateX)) - 1;
+    }
+
+    public int getPixelMaxX(BakeResult bake) {
+        return (int) Math.ceil(Math.max(bake.getMinX() * baseScaleX + baseTranslateX, bake.getMaxX() * baseScaleX + baseTranslateX)) + 1;
+    }
+
+    public void rasterize(List<BakeResult> bakes, int[] faceIndices, int start, int end, RasterRegion region) {
+        if (frontToBack) {
+            for (int i = end - 1; i >= start; i--) {
+                BakeResult bake = bakes.get(faceIndices[i]);
+                if (bake.isFullyOpaque()) {
+                    if (isHidden(bake, region)) {
+                        if (statistics != null) {
+                            statistics.addFaceRegionCulled();
+                            if (culledRegions != null && culledRegions.incrementAndGet(faceIndices[i]) == dispatchedRegions[faceIndices[i]]) {
+                                statistics.addFaceCulled();
+                            }
+                        }
+                    } else {
+                        rasterize(bake, region, true);
+                    }
+                }
+            }
+            for (int i = start; i < end; i++) {
+                BakeResult bake = bakes.get(faceIndices[i]);
+                if (!bake.isFullyOpaque()) {
+                    rasterize(bake, region, false);
+                }
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                rasterize(bakes.get(faceIndices[i]), region, false);
+            }
+        }
+    }
+
+    public boolean isHidden(BakeResult bake, RasterRegion region) {
+        int regionX = region.getX();
+        int regionY = region.getY();
+        int minX = Math.max(0, getPixelMinX(bake) - regionX);
+        int maxX = Math.min(region.getWidth() - 1, getPixelMaxX(bake) - regionX);
+        int minY = Math.max(0, getPixelMinY(bake) - regionY);
+        int maxY = Math.min(region.getHeight() - 1, getPixelMaxY(bake) - regionY);
+        if (minX > maxX || minY > maxY) {
+            return false;
+        }
+        int level = region.getDepthLevels() - 1;
+        return isHidden(bake, region, level, 0, 0, minX, minY, maxX, maxY);
+    }
+
+    private boolean isHidden(BakeResult bake, RasterRegion region, int level, int cellX, int cellY, int minX, int minY, int maxX, int maxY) {
+        int shift = RasterRegion.DEPTH_CELL_SHIFT + level;
+        int startX = Math.max(minX, cellX << shift);
+        int startY = Math.max(minY, cellY << shift);
+        int endX = Math.min(maxX, ((cellX + 1) << shift) - 1);
+        int endY = Math.min(maxY, ((cellY + 1) << shift) - 1);
+        if (startX > endX || startY > endY) {
+            return true;
+        }
+        if (region.isDepthCellCovered(level, cellX, cellY)) {
+            double x1 = (startX + region.getX() - baseTranslateX) / baseScaleX;
+            double x2 = (endX + region.getX() - baseTranslateX) / baseScaleX;
+            double y1 = (startY + region.getY() - baseTranslateY) / baseScaleY;
+            double y2 = (endY + region.getY() - baseTranslateY) / baseScaleY;
+            double planeDepth = Math.max(Math.max(bake.getDepthAt(x1, y1), bake.getDepthAt(x2, y1)), Math.max(bake.getDepthAt(x1, y2), bake.getDepthAt(x2, y2)));
+            if (MathUtils.lessThan(Math.min(planeDepth, bake.getMaxDepth()), region.getDepthCellMin(level, cellX, cellY), HIDDEN_FACE_DEPTH_EPSILON)) {
+                return true;
+            }
+        }
+        if (level == 0) {
+            return false;
+        }
+        for (int childY = cellY * 2; childY <= cellY * 2 + 1 && childY < region.getDepthRows(level - 1); childY++) {
+            for (int childX = cellX * 2; childX <= cellX * 2 + 1 && childX < region.getDepthColumns(level - 1); childX++) {
+                if (!isHidden(bake, region, level - 1, childX, childY, minX, minY, maxX, maxY)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public void rasterize(BakeResult bake, RasterRegion region, boolean reversed) {
+        int regionX = region.getX();
+        int regionY = region.getY();
+        int regionWidth = region.getWidth();
+        int minX = Math.max(regionX, getPixelMinX(bake));
+        int maxX = Math.min(regionX + regionWidth - 1, getPixelMaxX(bake));
+        int minY = Math.max(regionY, getPixelMinY(bake));
+        int maxY = Math.min(regionY + region.getHeight() - 1, getPixelMaxY(bake));
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+
+        AffineTransform inverseTransform = bake.getInverseTransform();
+        double m00 = inverseTransform.getScaleX();
+        double m10 = inverseTransform.getShearY();
+        double m01 = inverseTransform.getShearX();
+        double m11 = inverseTransform.getScaleY();
+        double m02 = inverseTransform.getTranslateX();
+        double m12 = inverseTransform.getTranslateY();
+        int textureWidth = bake.getTextureWidth();
+        int textureHeight = bake.getTextureHeight();
+        int[] textureData = bake.getSharedTextureData();
+        boolean fullyOpaque = bake.isFullyOpaque();
+        int depthTieBreaker = bake.getDepthTieBreaker();
+        double boundMinX = bake.getMinX();
+        double boundMaxX = bake.getMaxX();
+        double boundMinY = bake.getMinY();
+        double boundMaxY = bake.getMaxY();
+        double textureXPerPixel = Math.sqrt(m00 * m00 + m01 * m01);
+        double textureYPerPixel = Math.sqrt(m10 * m10 + m11 * m11);
+        double spanMarginX = edgeAntialiasing ? 1 + textureXPerPixel / 2 : 1;
+        double spanMarginY = edgeAntialiasing ? 1 + textureYPerPixel / 2 : 1;
+        TextureSampler sampler = bake.getSampler(mipmapping, textureFilter);
+
+        int[] colors = region.getColors();
+        int[] sourceColors = region.getSourceColors();
+        double[] depths = region.getDepths();
+        int[] depthTieBreakers = region.getDepthTieBreakers();
+        boolean depthChanged = false;
+        int texelsSampled = 0;
+
+        for (int y = minY; y <= maxY; y++) {
+            double reverseTransformedY = (y - baseTranslateY) / baseScaleY;
+            boolean rowInBound = reverseTransformedY >= boundMinY && reverseTransformedY <= boundMaxY;
+            if (!rowInBound && !edgeAntialiasing) {
+                continue;
+            }
+            double rowTextureX = m01 * y;
+            double rowTextureY = m11 * y;
+            double spanStart = Math.max(spanLowerBound(m00, rowTextureX + m02, textureWidth, spanMarginX), spanLowerBound(m10, rowTextureY + m12, textureHeight, spanMarginY));
+            double spanEnd = Math.min(spanUpperBound(m00, rowTextureX + m02, textureWidth, spanMarginX), spanUpperBound(m10, rowTextureY + m12, textureHeight, spanMarginY));
+            int startX = (int) Math.max(minX, Math.floor(spanStart));
+            int endX = (int) Math.min(maxX, Math.ceil(spanEnd));
+            int rowOffset = (y - regionY) * regionWidth - regionX;
+            for (int x = startX; x <= endX; x++) {
+                double reverseTransformedX = (x - baseTranslateX) / baseScaleX;
+                double textureX = m00 * x + rowTextureX + m02;
+                double textureY = m10 * x + rowTextureY + m12;
+                if (!rowInBound || reverseTransformedX < boundMinX || reverseTransformedX > boundMaxX || !MathUtils.greaterThanOrEquals(textureX, 0.0) || !MathUtils.greaterThanOrEquals(textureY, 0.0) || !MathUtils.lessThan(textureX, textureWidth) || !MathUtils.lessThan(textureY, textureHeight)) {
+                    if (edgeAntialiasing && drawEdge(bake, sampler, region, rowOffset + x, reverseTransformedX, reverseTransformedY, textureX, textureY, textureXPerPixel, textureYPerPixel)) {
+                        texelsSampled++;
+                    }
+                    continue;
+                }
+                int index = rowOffset + x;
+                int textureIndex = (int) textureX + ((int) textureY * textureWidth);
+                if (useZBuffer) {
+                    double depth = bake.getDepthAt(reverseTransformedX, reverseTransformedY);
+                    double z = depths[index];
+                    boolean depthPassed = MathUtils.greaterThan(depth, z) || (MathUtils.equals(depth, z) && (depthTieBreaker > depthTieBreakers[index] || (reversed && depthTieBreaker == depthTieBreakers[index])));
+                    if (!depthPassed) {
+                        if (fullyOpaque || ColorUtils.getAlpha(sourceColors[index]) >= 255 || (blendingMode == BlendingModes.NORMAL && ColorUtils.getAlpha(colors[index]) >= 255)) {
+                            continue;
+                        }
+                        texelsSampled++;
+                        int imageColor = sampler == null ? textureData[textureIndex] : sampler.sample(textureX, textureY);
+                        if (ColorUtils.getAlpha(imageColor) <= 0) {
+                            colors[index] = ColorUtils.composite(colors[index], imageColor, blendingMode);
+                        }
+                        continue;
+                    }
+                    texelsSampled++;
+                    int imageColor = sampler == null ? textureData[textureIndex] : sampler.sample(textureX, textureY);
+                    int imageAlpha = fullyOpaque ? 255 : ColorUtils.getAlpha(imageColor);
+                    if (imageAlpha > 0) {
+                        depthTieBreakers[index] = depthTieBreaker;
+                        if (depth > z) {
+                            if (z == MathUtils.NEGATIVE_MAX_DOUBLE) {
+                                region.markCovered(x - regionX, y - regionY);
+                            }
+                            depths[index] = depth;
+                            depthChanged = true;
+                        }
+                        if (imageAlpha >= 255) {
+                            colors[index] = imageColor;
+                        } else {
+                            colors[index] = ColorUtils.composite(imageColor, colors[index], blendingMode);
+                        }
+                    } else if (ColorUtils.getAlpha(sourceColors[index]) < 255) {
+                        colors[index] = ColorUtils.composite(colors[index], imageColor, blendingMode);
+                    }
+                } else if (fullyOpaque && blendingMode == BlendingModes.NORMAL) {
+                    texelsSampled++;
+                    colors[index] = sampler == null ? textureData[textureIndex] : sampler.sample(textureX, textureY);
+                } else {
+                    texelsSampled++;
+                    colors[index] = ColorUtils.composite(sampler == null ? textureData[textureIndex] : sampler.sample(textureX, textureY), colors[index], blendingMode);
+                }
+            }
+        }
+        if (depthChanged) {
+            region.markDepthChanged(minX - regionX, minY - regionY, maxX - regionX, maxY - regionY);
+        }
+        if (statistics != null) {
+            statistics.addFaceRegionRasterized();
+            statistics.addTexelsSampled(texelsSampled);
+        }
+    }
+
+    private boolean drawEdge(BakeResult bake, TextureSampler sampler, RasterRegion region, int index, double reverseTransformedX, double reverseTransformedY, double textureX, double textureY, double textureXPerPixel, double textureYPerPixel) {
+        int textureWidth = bake.getTextureWidth();
+        int textureHeight = bake.getTextureHeight();
+        double coverage = edgeCoverage(textureX, textureWidth, textureXPerPixel) * edgeCoverage(textureY, textureHeight, textureYPerPixel);
+        if (coverage <= 0.0) {
+            return false;
+        }
+        if (useZBuffer) {
+            double depth = bake.getDepthAt(reverseTransformedX, reverseTransformedY);
+            double z = region.getDepths()[index];
+            if (!MathUtils.greaterThan(depth, z) && !(MathUtils.equals(depth, z) && bake.getDepthTieBreaker() > region.getDepthTieBreakers()[index])) {
+                return false;
+            }
+        }
+        int clampedX = Math.max(0, Math.min(textureWidth - 1, (int) Math.floor(textureX)));
+        int clampedY = Math.max(0, Math.min(textureHeight - 1, (int) Math.floor(textureY)));
+        int imageColor = sampler == null ? bake.getSharedTextureData()[clampedX + clampedY * textureWidth] : sampler.sample(clampedX + 0.5, clampedY + 0.5);
+        if (ColorUtils.getAlpha(imageColor) <= 0) {
+            return true;
+        }
+        int[] colors = region.getColors();
+        colors[index] = ColorUtils.composite(imageColor, colors[index], blendingMode, coverage);
+        return true;
+    }
+
+    private static double edgeCoverage(double textureCoordinate, int limit, double texturePerPixel) {
+        if (texturePerPixel <= 0.0) {
+            return textureCoordinate >= 0.0 && textureCoordinate < limit ? 1.0 : 0.0;
+        }
+        double lower = Math.max(0.0, Math.min(1.0, 0.5 + textureCoordinate / texturePerPixel));
+        double upper = Math.max(0.0, Math.min(1.0, 0.5 + (limit - textureCoordinate) / texturePerPixel));
+        return Math.max(0.0, lower + upper - 1.0);
+    }
+
+    private static double spanLowerBound(double step, double offset, int limit, double margin) {
+        if (step > 0) {
+            return (-margin - offset) / step;
+        } else if (step < 0) {
+            return (limit + margin - offset) / step;
+        }
+        return offset >= -margin && offset <= limit + margin ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+    }
+
+    private static double spanUpperBound(double step, double offset, int limit, double margin) {
+        if (step > 0) {
+            return (limit + margin - offset) / step;
+        } else if (step < 0) {
+            return (-margin - offset) / step;
+        }
+        return offset >= -margin && offset <= limit + margin ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.blending.BlendingModes;
+import com.loohp.blockmodelrenderer.utils.TaskCompletion;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Renders many models as one job. Faces of every model are baked in parallel and all of their rows, bands or tiles
+ * are scheduled together, so small renders share tasks instead of each paying for their own submission.
+ * Jobs drawing onto overlapping areas of the same image are rendered one after another in the order they were added,
+ * jobs with disjoint clips on the same image are rendered together.
+ * Scheduling settings and the deadline are taken from the options passed to render, the options of each job only
+ * control how that job is drawn.
+ */
+public class RenderBatch {
+
+    private final List<Job> jobs;
+
+    public RenderBatch() {
+        this.jobs = new ArrayList<>();
+    }
+
+    public RenderBatch add(Model model, BufferedImage source, boolean useZBuffer, AffineTransform baseTransform, BlendingModes blendingMode) {
+        return add(model, new RenderTarget(source, false), baseTransform, new RenderOptions().setUseZBuffer(useZBuffer).setBlendingMode(blendingMode));
+    }
+
+    public RenderBatch add(Model model, BufferedImage source, AffineTransform baseTransform, RenderOptions options) {
+        return add(model, new RenderTarget(source, false), baseTransform, options);
+    }
+
+    public RenderBatch add(Model model, RenderTarget target, AffineTransform baseTransform, RenderOptions options) {
+        jobs.add(new Job(model::bakeFaces, target, baseTransform, options));
+        return this;
+    }
+
+    public RenderBatch add(ModelInstance instance, BufferedImage source, AffineTransform baseTransform, RenderOptions options) {
+        return add(instance, new RenderTarget(source, false), baseTransform, options);
+    }
+
+    public RenderBatch add(ModelInstance instance, RenderTarget target, AffineTransform baseTransform, RenderOptions options) {
+        jobs.add(new Job(instance::bakeFaces, target, baseTransform, options));
+        return this;
+    }
+
+    public RenderBatch add(CompactModel model, BufferedImage source, AffineTransform baseTransform, RenderOptions options) {
+        return add(model, new RenderTarget(source, false), baseTransform, options);
+    }
+
+    public RenderBatch add(CompactModel model, RenderTarget target, AffineTransform baseTransform, RenderOptions options) {
+        jobs.add(new Job(model::bakeFaces, target, baseTransform, options));
+        return this;
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    public TaskCompletion render(RenderOptions options, ExecutorService service) {
+        return new TaskCompletion(Collections.singletonList(renderAsync(options, service)));
+    }
+
+    public CompletableFuture<Void> renderAsync(RenderOptions options, ExecutorService service) {
+        List<List<Job>> phases = new ArrayList<>();
+        Map<Job, Integer> jobPhases = new IdentityHashMap<>();
+        Map<BufferedImage, List<Job>> targetJobs = new IdentityHashMap<>();
+        for (Job job : jobs) {
+            List<Job> previousJobs = targetJobs.computeIfAbsent(job.target.getImage(), k -> new ArrayList<>());
+            int phase = 0;
+            for (Job previousJob : previousJobs) {
+                if (previousJob.overlaps(job)) {
+                    phase = Math.max(phase, jobPhases.get(previousJob) + 1);
+                }
+            }
+            jobPhases.put(job, phase);
+            previousJobs.add(job);
+            if (phase >= phases.size()) {
+                phases.add(new ArrayList<>());
+            }
+            phases.get(phase).add(job);
+        }
+        RenderFuture<Void> future = new RenderFuture<>();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (List<Job> phase : phases) {
+            chain = chain.thenCompose(v -> {
+                if (future.isCancelRequested()) {
+                    throw new CancellationException("Render was cancelled");
+                }
+                return bake(phase, options, service).thenCompose(phaseSchedulers -> {
+                    RenderScheduler scheduler = RenderScheduler.combine(phaseSchedulers);
+                    future.addScheduler(scheduler);
+                    return scheduler.schedule(options, service);
+                });
+            });
+        }
+        chain.whenComplete((result, throwable) -> future.finish(null, throwable));
+        return future;
+    }
+
+    private CompletableFuture<List<RenderScheduler>> bake(List<Job> phase, RenderOptions options, ExecutorService service) {
+        if (options.isCallerRuns() || service == null || phase.size() == 1) {
+            CompletableFuture<List<RenderScheduler>> future = new CompletableFuture<>();
+            try {
+                List<RenderScheduler> schedulers = new ArrayList<>(phase.size());
+                for (Job job : phase) {
+                    schedulers.add(job.createScheduler());
+                }
+                future.complete(schedulers);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        List<CompletableFuture<RenderScheduler>> futures = new ArrayList<>(phase.size());
+        for (Job job : phase) {
+            futures.add(CompletableFuture.supplyAsync(job::createScheduler, service));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<RenderScheduler> schedulers = new ArrayList<>(futures.size());
+            for (CompletableFuture<RenderScheduler> future : futures) {
+                schedulers.add(future.join());
+            }
+            return schedulers;
+        });
+    }
+
+    private static class Job {
+
+        private final Model.FaceBaker baker;
+        private final RenderTarget target;
+        private final AffineTransform baseTransform;
+        private final RenderOptions options;
+
+        private Job(Model.FaceBaker baker, RenderTarget target, AffineTransform baseTransform, RenderOptions options) {
+            this.baker = baker;
+            this.target = target;
+            this.baseTransform = baseTransform;
+            this.options = options;
+        }
+
+        private boolean overlaps(Job other) {
+            Rectangle clip = options.getClip();
+            Rectangle otherClip = other.options.getClip();
+            return clip == null || otherClip == null || clip.intersects(otherClip);
+        }
+
+        private RenderScheduler createScheduler() {
+            return Model.createScheduler(baker, target, baseTransform, options);
+        }
+
+    }
+
+}
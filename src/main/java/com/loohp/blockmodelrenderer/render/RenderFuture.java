@@ -0,0 +1,103 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The future of a render driven by one or more {@link RenderScheduler}s. Cancelling it stops the schedulers, and a
+ * cancel that succeeds always ends with the future completed as cancelled, but only once every running task has stopped
+ * writing to the targets. A cancel only succeeds while the render is still running.
+ */
+class RenderFuture<T> extends CompletableFuture<T> {
+
+    private static final int RUNNING = 0;
+    private static final int CANCELLED = 1;
+    private static final int FINISHED = 2;
+
+    public static <T> RenderFuture<T> schedule(Supplier<RenderScheduler> schedulerSupplier, RenderOptions options, ExecutorService service, T result) {
+        RenderFuture<T> future = new RenderFuture<>();
+        try {
+            RenderScheduler scheduler = schedulerSupplier.get();
+            future.addScheduler(scheduler);
+            scheduler.schedule(options, service).whenComplete((v, throwable) -> future.finish(result, throwable));
+        } catch (Throwable e) {
+            future.finish(null, e);
+        }
+        return future;
+    }
+
+    private final AtomicInteger state;
+    private final List<RenderScheduler> schedulers;
+
+    RenderFuture() {
+        this.state = new AtomicInteger(RUNNING);
+        this.schedulers = new ArrayList<>();
+    }
+
+    public void addScheduler(RenderScheduler scheduler) {
+        synchronized (schedulers) {
+            schedulers.add(scheduler);
+            if (state.get() == CANCELLED) {
+                scheduler.cancel();
+            }
+        }
+    }
+
+    public boolean isCancelRequested() {
+        return state.get() == CANCELLED;
+    }
+
+    /**
+     * Completes the future once the render has stopped, as cancelled if a cancel succeeded before.
+     */
+    public void finish(T result, Throwable throwable) {
+        if (state.compareAndSet(RUNNING, FINISHED)) {
+            if (throwable == null) {
+                complete(result);
+            } else {
+                completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+            }
+        } else if (state.get() == CANCELLED) {
+            super.cancel(false);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!state.compareAndSet(RUNNING, CANCELLED)) {
+            return state.get() == CANCELLED;
+        }
+        synchronized (schedulers) {
+            for (RenderScheduler scheduler : schedulers) {
+                scheduler.cancel();
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.blending.BlendingModes;
+
+import java.awt.Rectangle;
+import java.util.concurrent.TimeUnit;
+
+public class RenderOptions {
+
+    public static final long DEFAULT_INLINE_WORK_THRESHOLD = 16384;
+
+    private boolean useZBuffer;
+    private BlendingModes blendingMode;
+    private RasterizationMode rasterizationMode;
+    private boolean frontToBack;
+    private boolean backFaceCulling;
+    private RenderStatistics statistics;
+    private int supersampling;
+    private boolean edgeAntialiasing;
+    private boolean mipmapping;
+    private TextureFilter textureFilter;
+    private boolean callerRuns;
+    private long inlineWorkThreshold;
+    private long deadline;
+    private Rectangle clip;
+
+    public RenderOptions() {
+        this.useZBuffer = true;
+        this.blendingMode = BlendingModes.NORMAL;
+        this.rasterizationMode = RasterizationMode.PIXEL_QUERY;
+        this.frontToBack = false;
+        this.backFaceCulling = false;
+        this.statistics = null;
+        this.supersampling = 1;
+        this.edgeAntialiasing = false;
+        this.mipmapping = false;
+        this.textureFilter = TextureFilter.NEAREST;
+        this.callerRuns = false;
+        this.inlineWorkThreshold = DEFAULT_INLINE_WORK_THRESHOLD;
+        this.deadline = 0;
+        this.clip = null;
+    }
+
+    public RenderOptions copy() {
+        RenderOptions options = new RenderOptions();
+        options.useZBuffer = useZBuffer;
+        options.blendingMode = blendingMode;
+        options.rasterizationMode = rasterizationMode;
+        options.frontToBack = frontToBack;
+        options.backFaceCulling = backFaceCulling;
+        options.statistics = statistics;
+        options.supersampling = supersampling;
+        options.edgeAntialiasing = edgeAntialiasing;
+        options.mipmapping = mipmapping;
+        options.textureFilter = textureFilter;
+        options.callerRuns = callerRuns;
+        options.inlineWorkThreshold = inlineWorkThreshold;
+        options.deadline = deadline;
+        options.clip = clip == null ? null : new Rectangle(clip);
+        return options;
+    }
+
+    public boolean isUseZBuffer() {
+        return useZBuffer;
+    }
+
+    public RenderOptions setUseZBuffer(boolean useZBuffer) {
+        this.useZBuffer = useZBuffer;
+        return this;
+    }
+
+    public BlendingModes getBlendingMode() {
+        return blendingMode;
+    }
+
+    public RenderOptions setBlendingMode(BlendingModes blendingMode) {
+        this.blendingMode = blendingMode;
+        return this;
+    }
+
+    public RasterizationMode getRasterizationMode() {
+        return rasterizationMode;
+    }
+
+    public RenderOptions setRasterizationMode(RasterizationMode rasterizationMode) {
+        this.rasterizationMode = rasterizationMode;
+        return this;
+    }
+
+    /**
+     * Only applies to z-buffered {@link RasterizationMode#SCANLINE} and {@link RasterizationMode#TILED} renders
+     * using {@link BlendingModes#NORMAL}.
+     * Fully opaque faces are drawn nearest first so that hidden texels are rejected before being sampled,
+     * faces with transparency are drawn afterwards in the usual back to front order.
+     * Each region keeps a coarse depth pyramid of the pixels drawn so far and opaque faces entirely behind it are culled
+     * without being rasterized.
+     */
+    public boolean isFrontToBack() {
+        return frontToBack;
+    }
+
+    public RenderOptions setFrontToBack(boolean frontToBack) {
+        this.frontToBack = frontToBack;
+        return this;
+    }
+
+    /**
+     * Skips faces of a {@link Hexahedron} facing away from the viewer before they are baked, unless they are double sided.
+     * Faces are back facing when their normal, oriented away from the opposite face, points away from the viewer after
+     * the transforms of the model. Faces seen through transparent texels of the faces in front of them are not drawn.
+     */
+    public boolean isBackFaceCulling() {
+        return backFaceCulling;
+    }
+
+    public RenderOptions setBackFaceCulling(boolean backFaceCulling) {
+        this.backFaceCulling = backFaceCulling;
+        return this;
+    }
+
+    public RenderStatistics getStatistics() {
+        return statistics;
+    }
+
+    public RenderOptions setStatistics(RenderStatistics statistics) {
+        this.statistics = statistics;
+        return this;
+    }
+
+    /**
+     * The number of samples taken along each axis of every pixel, a value of 4 shades 16 samples per pixel.
+     * Samples are resolved to the target with a box filter on premultiplied alpha, pixels where every sample agrees are
+     * written unchanged. Depth is kept per sample while rendering and the center sample is written to the target depth buffer.
+     * Supersampled renders always use {@link RasterizationMode#TILED} unless {@link RasterizationMode#SCANLINE} is selected.
+     */
+    public int getSupersampling() {
+        return supersampling;
+    }
+
+    public RenderOptions setSupersampling(int supersampling) {
+        if (supersampling < 1) {
+            throw new IllegalArgumentException("Supersampling must be at least 1");
+        }
+        this.supersampling = supersampling;
+        return this;
+    }
+
+    /**
+     * Blends pixels just outside the edges of each face with the fraction of the pixel the face covers, computed from
+     * the distance of the pixel to the projected edges. Pixels inside a face are shaded exactly as without anti-aliasing,
+     * so the extra work is limited to a one pixel fringe around every face. Fringe pixels are depth tested but never
+     * write depth. Renders with edge anti-aliasing use {@link RasterizationMode#TILED} unless
+     * {@link RasterizationMode#SCANLINE} is selected and are always drawn back to front.
+     */
+    public boolean isEdgeAntialiasing() {
+        return edgeAntialiasing;
+    }
+
+    public RenderOptions setEdgeAntialiasing(boolean edgeAntialiasing) {
+        this.edgeAntialiasing = edgeAntialiasing;
+        return this;
+    }
+
+    /**
+     * Samples faces that are drawn at least twice smaller than their texture from a downscaled copy of the texture.
+     * Mipmaps are built once per texture data array and cached until the array is garbage collected, textures must not be
+     * modified in place after they have been rendered with mipmapping. Only applies to {@link RasterizationMode#SCANLINE}
+     * and {@link RasterizationMode#TILED} renders.
+     */
+    public boolean isMipmapping() {
+        return mipmapping;
+    }
+
+    public RenderOptions setMipmapping(boolean mipmapping) {
+        this.mipmapping = mipmapping;
+        return this;
+    }
+
+    /**
+     * Only applies to {@link RasterizationMode#SCANLINE} and {@link RasterizationMode#TILED} renders.
+     */
+    public TextureFilter getTextureFilter() {
+        return textureFilter;
+    }
+
+    public RenderOptions setTextureFilter(TextureFilter textureFilter) {
+        this.textureFilter = textureFilter;
+        return this;
+    }
+
+    /**
+     * Runs the whole render on the calling thread, the executor service passed to render may be null.
+     */
+    public boolean isCallerRuns() {
+        return callerRuns;
+    }
+
+    public RenderOptions setCallerRuns(boolean callerRuns) {
+        this.callerRuns = callerRuns;
+        return this;
+    }
+
+    /**
+     * Renders are split into tasks sized by their estimated work, the number of target pixels plus the pixels covered by
+     * the screen bounds of every face. Renders estimated at or below this threshold run on the calling thread instead of
+     * being submitted to the executor service. When the executor service is a {@link java.util.concurrent.ForkJoinPool}
+     * the work is split recursively so idle workers can steal from busy ones.
+     */
+    public long getInlineWorkThreshold() {
+        return inlineWorkThreshold;
+    }
+
+    public RenderOptions setInlineWorkThreshold(long inlineWorkThreshold) {
+        this.inlineWorkThreshold = inlineWorkThreshold;
+        return this;
+    }
+
+    /**
+     * The time in {@link System#currentTimeMillis()} after which no more work is started for the render, 0 for no deadline.
+     * Renders past their deadline stop at the next row, band or tile and complete exceptionally with a
+     * {@link java.util.concurrent.TimeoutException}, leaving the target partially drawn.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public RenderOptions setDeadline(long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    public RenderOptions setTimeout(long timeout, TimeUnit unit) {
+        return setDeadline(System.currentTimeMillis() + unit.toMillis(timeout));
+    }
+
+    /**
+     * Limits drawing to this rectangle of the target, in target pixels. Pixels outside of it are never read or written,
+     * so renders with disjoint clips can draw onto the same target at the same time.
+     */
+    public Rectangle getClip() {
+        return clip;
+    }
+
+    public RenderOptions setClip(Rectangle clip) {
+        this.clip = clip;
+        return this;
+    }
+
+}
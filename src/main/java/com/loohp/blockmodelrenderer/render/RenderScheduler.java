@@ -0,0 +1,276 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class RenderScheduler {
+
+    public static final int TASKS_PER_THREAD = 4;
+
+    private final long[] costPrefix;
+    private final UnitTask task;
+    private final CompletableFuture<Void> completion;
+    private final AtomicInteger pending;
+    private final AtomicReference<Throwable> failure;
+    private volatile boolean stopped;
+
+    RenderScheduler(long[] costs, UnitTask task) {
+        this.costPrefix = new long[costs.length + 1];
+        for (int i = 0; i < costs.length; i++) {
+            costPrefix[i + 1] = costPrefix[i] + Math.max(1, costs[i]);
+        }
+        this.task = task;
+        this.completion = new CompletableFuture<>();
+        this.pending = new AtomicInteger(1);
+        this.failure = new AtomicReference<>();
+        this.stopped = false;
+    }
+
+    public static RenderScheduler combine(List<RenderScheduler> schedulers) {
+        int[] offsets = new int[schedulers.size() + 1];
+        for (int i = 0; i < schedulers.size(); i++) {
+            offsets[i + 1] = offsets[i] + schedulers.get(i).getUnitCount();
+        }
+        long[] costs = new long[offsets[offsets.length - 1]];
+        for (int i = 0; i < schedulers.size(); i++) {
+            RenderScheduler scheduler = schedulers.get(i);
+            for (int unit = 0; unit < scheduler.getUnitCount(); unit++) {
+                costs[offsets[i] + unit] = scheduler.getCost(unit);
+            }
+        }
+        return new RenderScheduler(costs, (start, end) -> {
+            for (int unit = start; unit < end; unit++) {
+                int index = Arrays.binarySearch(offsets, unit);
+                index = index >= 0 ? index : -index - 2;
+                while (offsets[index + 1] == unit) {
+                    index++;
+                }
+                schedulers.get(index).task.run(unit - offsets[index], unit - offsets[index] + 1);
+            }
+        });
+    }
+
+    public int getUnitCount() {
+        return costPrefix.length - 1;
+    }
+
+    public long getCost(int unit) {
+        return costPrefix[unit + 1] - costPrefix[unit];
+    }
+
+    public long getTotalCost() {
+        return costPrefix[costPrefix.length - 1];
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Stops the render, units already running finish and the future returned by schedule completes once they have,
+     * with a CancellationException if any unit was skipped.
+     */
+    public void cancel() {
+        stopped = true;
+    }
+
+    public CompletableFuture<Void> schedule(RenderOptions options, ExecutorService service) {
+        long deadline = options.getDeadline();
+        int units = getUnitCount();
+        if (units == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (options.isCallerRuns() || service == null || units == 1 || getTotalCost() <= options.getInlineWorkThreshold()) {
+            new Chunk(0, units, deadline).run();
+            return completion;
+        }
+        if (service instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) service;
+            long grain = Math.max(1, getTotalCost() / ((long) pool.getParallelism() * TASKS_PER_THREAD));
+            pending.set(1);
+            pool.execute(new Chunk(0, units, deadline) {
+                @Override
+                protected void runUnits() {
+                    new SplitAction(0, units, grain, deadline).invoke();
+                }
+            });
+            return completion;
+        }
+        int targetTaskCount = Math.max(1, Runtime.getRuntime().availableProcessors() * TASKS_PER_THREAD);
+        long grain = Math.max(1, getTotalCost() / targetTaskCount);
+        List<Chunk> chunks = new ArrayList<>(Math.min(units, targetTaskCount + 1));
+        int start = 0;
+        while (start < units) {
+            int end = Math.max(start + 1, findUnit(costPrefix[start] + grain, start, units));
+            chunks.add(new Chunk(start, end, deadline));
+            start = end;
+        }
+        pending.set(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            try {
+                service.execute(chunks.get(i));
+            } catch (RejectedExecutionException e) {
+                fail(e);
+                if (pending.addAndGet(i - chunks.size()) == 0) {
+                    finish();
+                }
+                break;
+            }
+        }
+        return completion;
+    }
+
+    private void runUnits(int start, int end, long deadline) {
+        for (int unit = start; unit < end; unit++) {
+            if (stopped) {
+                throw new CancellationException("Render was cancelled");
+            }
+            if (deadline > 0 && System.currentTimeMillis() > deadline) {
+                throw new DeadlineExceededException();
+            }
+            task.run(unit, unit + 1);
+        }
+    }
+
+    /**
+     * Records the first failure and stops the remaining units, the completion is only completed by {@link #finish()}
+     * once every running chunk has exited so no unit writes to the target afterwards.
+     */
+    private void fail(Throwable e) {
+        stopped = true;
+        failure.compareAndSet(null, e instanceof DeadlineExceededException ? new TimeoutException("Render deadline exceeded") : e);
+    }
+
+    private void finish() {
+        Throwable e = failure.get();
+        if (e == null) {
+            completion.complete(null);
+        } else {
+            completion.completeExceptionally(e);
+        }
+    }
+
+    private int findUnit(long cost, int start, int end) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (costPrefix[middle + 1] <= cost) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private class Chunk implements Runnable {
+
+        private final int start;
+        private final int end;
+        protected final long deadline;
+
+        private Chunk(int start, int end, long deadline) {
+            this.start = start;
+            this.end = end;
+            this.deadline = deadline;
+        }
+
+        protected void runUnits() {
+            RenderScheduler.this.runUnits(start, end, deadline);
+        }
+
+        @Override
+        public void run() {
+            try {
+                runUnits();
+            } catch (Throwable e) {
+                fail(e);
+            }
+            if (pending.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+    }
+
+    private class SplitAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+        private final long grain;
+        private final long deadline;
+
+        private SplitAction(int start, int end, long grain, long deadline) {
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= 1 || costPrefix[end] - costPrefix[start] <= grain) {
+                try {
+                    runUnits(start, end, deadline);
+                } catch (Throwable e) {
+                    fail(e);
+                }
+                return;
+            }
+            int middle = findUnit((costPrefix[start] + costPrefix[end]) / 2, start, end);
+            middle = Math.min(end - 1, Math.max(start + 1, middle));
+            invokeAll(new SplitAction(start, middle, grain, deadline), new SplitAction(middle, end, grain, deadline));
+        }
+
+    }
+
+    private static class DeadlineExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private DeadlineExceededException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    interface UnitTask {
+
+        void run(int start, int end);
+
+    }
+
+}
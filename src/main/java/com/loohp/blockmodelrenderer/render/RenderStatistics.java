@@ -0,0 +1,124 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class RenderStatistics {
+
+    private final LongAdder facesBaked;
+    private final LongAdder faceRegionsRasterized;
+    private final LongAdder faceRegionsCulled;
+    private final LongAdder facesCulled;
+    private final LongAdder backFacesCulled;
+    private final LongAdder facesOutsideView;
+    private final LongAdder texelsSampled;
+
+    public RenderStatistics() {
+        this.facesBaked = new LongAdder();
+        this.faceRegionsRasterized = new LongAdder();
+        this.faceRegionsCulled = new LongAdder();
+        this.facesCulled = new LongAdder();
+        this.backFacesCulled = new LongAdder();
+        this.facesOutsideView = new LongAdder();
+        this.texelsSampled = new LongAdder();
+    }
+
+    void addFacesBaked(int count) {
+        facesBaked.add(count);
+    }
+
+    void addFaceRegionRasterized() {
+        faceRegionsRasterized.increment();
+    }
+
+    void addFaceRegionCulled() {
+        faceRegionsCulled.increment();
+    }
+
+    void addFaceCulled() {
+        facesCulled.increment();
+    }
+
+    void addBackFacesCulled(int count) {
+        backFacesCulled.add(count);
+    }
+
+    void addFacesOutsideView(int count) {
+        facesOutsideView.add(count);
+    }
+
+    void addTexelsSampled(int count) {
+        texelsSampled.add(count);
+    }
+
+    public long getFacesBaked() {
+        return facesBaked.sum();
+    }
+
+    public long getFaceRegionsRasterized() {
+        return faceRegionsRasterized.sum();
+    }
+
+    public long getFaceRegionsCulled() {
+        return faceRegionsCulled.sum();
+    }
+
+    public long getFacesCulled() {
+        return facesCulled.sum();
+    }
+
+    public long getBackFacesCulled() {
+        return backFacesCulled.sum();
+    }
+
+    public long getFacesOutsideView() {
+        return facesOutsideView.sum();
+    }
+
+    public long getTexelsSampled() {
+        return texelsSampled.sum();
+    }
+
+    public void reset() {
+        facesBaked.reset();
+        faceRegionsRasterized.reset();
+        faceRegionsCulled.reset();
+        facesCulled.reset();
+        backFacesCulled.reset();
+        facesOutsideView.reset();
+        texelsSampled.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "RenderStatistics{" +
+            "facesBaked=" + getFacesBaked() +
+            ", faceRegionsRasterized=" + getFaceRegionsRasterized() +
+            ", faceRegionsCulled=" + getFaceRegionsCulled() +
+            ", facesCulled=" + getFacesCulled() +
+            ", backFacesCulled=" + getBackFacesCulled() +
+            ", facesOutsideView=" + getFacesOutsideView() +
+            ", texelsSampled=" + getTexelsSampled() +
+            '}';
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.utils.MathUtils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * A color buffer paired with the depth buffer of everything drawn into it, so that separate
+ * {@link Model#render(RenderTarget, java.awt.geom.AffineTransform, RenderOptions, java.util.concurrent.ExecutorService)}
+ * calls are depth tested against each other. Models drawn into the same target must share the same model space and base transform,
+ * and renders into the same target must not run concurrently.
+ */
+public class RenderTarget {
+
+    private final BufferedImage image;
+    private final int width;
+    private final int height;
+    private final int[] colors;
+    private final double[] depths;
+    private final int[] depthTieBreakers;
+
+    public RenderTarget(BufferedImage image, boolean depthBuffer) {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        if (!(dataBuffer instanceof DataBufferInt)) {
+            throw new RuntimeException("This image is not compatible for rendering: Raster DataBuffer of BufferedImage is not a DataBufferInt");
+        }
+        this.image = image;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.colors = ((DataBufferInt) dataBuffer).getData();
+        if (depthBuffer) {
+            this.depths = new double[width * height];
+            this.depthTieBreakers = new int[width * height];
+            clearDepth();
+        } else {
+            this.depths = null;
+            this.depthTieBreakers = null;
+        }
+    }
+
+    public RenderTarget(BufferedImage image) {
+        this(image, true);
+    }
+
+    public RenderTarget(int width, int height) {
+        this(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int[] getColors() {
+        return colors;
+    }
+
+    public boolean hasDepthBuffer() {
+        return depths != null;
+    }
+
+    public double[] getDepths() {
+        return depths;
+    }
+
+    public int[] getDepthTieBreakers() {
+        return depthTieBreakers;
+    }
+
+    public void clearDepth() {
+        if (depths != null) {
+            Arrays.fill(depths, MathUtils.NEGATIVE_MAX_DOUBLE);
+            Arrays.fill(depthTieBreakers, Integer.MIN_VALUE);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(colors, 0);
+        clearDepth();
+    }
+
+    public void copyFrom(RenderTarget other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("RenderTarget dimensions do not match");
+        }
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        if (depths != null) {
+            if (other.depths == null) {
+                clearDepth();
+            } else {
+                System.arraycopy(other.depths, 0, depths, 0, depths.length);
+                System.arraycopy(other.depthTieBreakers, 0, depthTieBreakers, 0, depthTieBreakers.length);
+            }
+        }
+    }
+
+    /**
+     * Returns a target with its own copy of the colors and depths, the image of the copy has the same color model and
+     * layout as the image of this target.
+     */
+    public RenderTarget copy() {
+        BufferedImage imageCopy = new BufferedImage(image.getColorModel(), image.getRaster().createCompatibleWritableRaster(width, height), image.isAlphaPremultiplied(), null);
+        RenderTarget copy = new RenderTarget(imageCopy, depths != null);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+}
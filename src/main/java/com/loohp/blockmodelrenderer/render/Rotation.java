@@ -0,0 +1,126 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+/**
+ * A rotation as applied by {@link ITransformable#rotate(double, double, double, boolean)}, resolved into a matrix
+ * for a given set of rotation axes. The last resolved axes are remembered so that faces sharing the same axes only
+ * resolve the rotation once.
+ */
+class Rotation {
+
+    private final double x;
+    private final double y;
+    private final double z;
+    private final double[] axisValues;
+    private final double[] matrix;
+    private final double[] rotatedAxisValues;
+    private boolean resolved;
+
+    Rotation(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.axisValues = new double[9];
+        this.matrix = new double[9];
+        this.rotatedAxisValues = new double[9];
+        this.resolved = false;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double[] getMatrix(Vector[] axis) {
+        resolve(axis);
+        return matrix;
+    }
+
+    public void rotateAxis(Vector[] axis) {
+        resolve(axis);
+        for (int i = 0; i < 3; i++) {
+            axis[i].setX(rotatedAxisValues[i * 3]).setY(rotatedAxisValues[i * 3 + 1]).setZ(rotatedAxisValues[i * 3 + 2]);
+        }
+    }
+
+    private void resolve(Vector[] axis) {
+        if (resolved && matches(axis, axisValues)) {
+            return;
+        }
+        for (int i = 0; i < 3; i++) {
+            axisValues[i * 3] = axis[i].getX();
+            axisValues[i * 3 + 1] = axis[i].getY();
+            axisValues[i * 3 + 2] = axis[i].getZ();
+        }
+        Vector xAxis = axis[0].clone();
+        Vector yAxis = axis[1].clone();
+        Vector zAxis = axis[2].clone();
+        double x = Math.toRadians(this.x);
+        double y = Math.toRadians(this.y);
+        double z = Math.toRadians(this.z);
+        Vector[] basis = new Vector[] {new Vector(1, 0, 0), new Vector(0, 1, 0), new Vector(0, 0, 1)};
+        for (Vector v : basis) {
+            v.rotateAroundAxis(xAxis, x);
+        }
+        yAxis.rotateAroundAxis(xAxis, x);
+        zAxis.rotateAroundAxis(xAxis, x);
+        for (Vector v : basis) {
+            v.rotateAroundAxis(yAxis, y);
+        }
+        xAxis.rotateAroundAxis(yAxis, y);
+        zAxis.rotateAroundAxis(yAxis, y);
+        for (Vector v : basis) {
+            v.rotateAroundAxis(zAxis, z);
+        }
+        xAxis.rotateAroundAxis(zAxis, z);
+        yAxis.rotateAroundAxis(zAxis, z);
+        for (int i = 0; i < 3; i++) {
+            matrix[i] = basis[i].getX();
+            matrix[3 + i] = basis[i].getY();
+            matrix[6 + i] = basis[i].getZ();
+        }
+        Vector[] rotatedAxis = new Vector[] {xAxis, yAxis, zAxis};
+        for (int i = 0; i < 3; i++) {
+            rotatedAxisValues[i * 3] = rotatedAxis[i].getX();
+            rotatedAxisValues[i * 3 + 1] = rotatedAxis[i].getY();
+            rotatedAxisValues[i * 3 + 2] = rotatedAxis[i].getZ();
+        }
+        resolved = true;
+    }
+
+    private static boolean matches(Vector[] axis, double[] values) {
+        for (int i = 0; i < 3; i++) {
+            if (axis[i].getX() != values[i * 3] || axis[i].getY() != values[i * 3 + 1] || axis[i].getZ() != values[i * 3 + 2]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
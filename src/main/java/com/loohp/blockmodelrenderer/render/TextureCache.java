@@ -0,0 +1,241 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.blending.BlendingModes;
+import com.loohp.blockmodelrenderer.utils.ColorUtils;
+import com.loohp.blockmodelrenderer.utils.ImageUtils;
+import com.loohp.blockmodelrenderer.utils.MathUtils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shares the lit and overlay composited textures produced when baking faces.
+ * Entries are keyed by the identity of the texture and overlays together with the light ratio rounded to
+ * {@link #LIGHT_LEVELS} levels and the overlay blending modes. They are spread over independently locked stripes which
+ * each evict least recently used once their share of the limit is exceeded. The source textures and overlays held by
+ * each entry are counted towards the limit along with the prepared texture. The limit can be changed with
+ * {@link #setMaximumBytes(long)}, and a limit of 0 disables the cache.
+ */
+public class TextureCache {
+
+    public static final long DEFAULT_MAXIMUM_BYTES = 64L * 1024 * 1024;
+    public static final int LIGHT_LEVELS = 256;
+
+    private static final int STRIPES = 16;
+    private static final Stripe[] PREPARED = new Stripe[STRIPES];
+
+    private static volatile long maximumBytes = DEFAULT_MAXIMUM_BYTES;
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            PREPARED[i] = new Stripe();
+        }
+    }
+
+    private TextureCache() {
+    }
+
+    static BufferedImage getPrepared(BufferedImage texture, double lightRatio, BufferedImage[] overlay, BlendingModes[] overlayBlendingMode) {
+        int overlayCount = overlay == null ? 0 : overlay.length;
+        BlendingModes[] blendingModes = new BlendingModes[overlayCount];
+        for (int i = 0; i < overlayCount; i++) {
+            blendingModes[i] = overlayBlendingMode == null || i >= overlayBlendingMode.length || overlayBlendingMode[i] == null ? BlendingModes.GLINT : overlayBlendingMode[i];
+        }
+        int lightLevel = (int) Math.round(lightRatio * LIGHT_LEVELS);
+        Key key = new Key(texture, lightLevel, overlayCount == 0 ? new BufferedImage[0] : overlay.clone(), blendingModes);
+        Stripe stripe = PREPARED[(key.hashCode ^ (key.hashCode >>> 16)) & (STRIPES - 1)];
+        BufferedImage prepared = stripe.get(key);
+        if (prepared != null) {
+            return prepared;
+        }
+        prepared = prepare(key);
+        return stripe.put(key, prepared);
+    }
+
+    public static long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    /**
+     * Sets the limit on the bytes held by the cache, evicting entries that no longer fit. A limit of 0 disables it.
+     */
+    public static void setMaximumBytes(long maximumBytes) {
+        if (maximumBytes < 0) {
+            throw new IllegalArgumentException("maximumBytes cannot be negative");
+        }
+        TextureCache.maximumBytes = maximumBytes;
+        for (Stripe stripe : PREPARED) {
+            stripe.trim(maximumBytes / STRIPES);
+        }
+    }
+
+    public static void clear() {
+        for (Stripe stripe : PREPARED) {
+            stripe.clear();
+        }
+    }
+
+    private static long getBytes(BufferedImage image) {
+        return image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    private static BufferedImage prepare(Key key) {
+        BufferedImage texture = key.texture;
+        int width = texture.getWidth();
+        int height = texture.getHeight();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] imageData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        if (ImageUtils.hasContiguousIntArgbData(texture)) {
+            System.arraycopy(((DataBufferInt) texture.getRaster().getDataBuffer()).getData(), 0, imageData, 0, imageData.length);
+        } else {
+            texture.getRGB(0, 0, width, height, imageData, 0, width);
+        }
+        double lightRatio = key.lightLevel / (double) LIGHT_LEVELS;
+        if (!MathUtils.equals(lightRatio, 1.0)) {
+            for (int i = 0; i < imageData.length; i++) {
+                int colorValue = imageData[i];
+                int alpha = ColorUtils.getAlpha(colorValue);
+                if (alpha != 0) {
+                    int red = Math.min(255, Math.max(0, (int) (ColorUtils.getRed(colorValue) * lightRatio)));
+                    int green = Math.min(255, Math.max(0, (int) (ColorUtils.getGreen(colorValue) * lightRatio)));
+                    int blue = Math.min(255, Math.max(0, (int) (ColorUtils.getBlue(colorValue) * lightRatio)));
+                    imageData[i] = ColorUtils.getIntFromColor(red, green, blue, alpha);
+                }
+            }
+        }
+        for (int i = 0; i < key.overlay.length; i++) {
+            BlendingModes blendingModes = key.overlayBlendingMode[i];
+            int[] overlayData = key.overlay[i].getRGB(0, 0, width, height, null, 0, width);
+            for (int j = 0; j < imageData.length; j++) {
+                imageData[j] = ColorUtils.composite(overlayData[j], imageData[j], blendingModes);
+            }
+        }
+        return image;
+    }
+
+    private static class Stripe {
+
+        private final LinkedHashMap<Key, BufferedImage> entries;
+        private long bytes;
+
+        private Stripe() {
+            this.entries = new LinkedHashMap<>(16, 0.75F, true);
+            this.bytes = 0;
+        }
+
+        private synchronized BufferedImage get(Key key) {
+            return entries.get(key);
+        }
+
+        private synchronized BufferedImage put(Key key, BufferedImage prepared) {
+            BufferedImage existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            long entryBytes = key.getBytes() + getBytes(prepared);
+            long maximumBytes = TextureCache.maximumBytes / STRIPES;
+            if (entryBytes <= maximumBytes) {
+                trim(maximumBytes - entryBytes);
+                entries.put(key, prepared);
+                bytes += entryBytes;
+            }
+            return prepared;
+        }
+
+        private synchronized void trim(long maximumBytes) {
+            Iterator<Map.Entry<Key, BufferedImage>> itr = entries.entrySet().iterator();
+            while (bytes > maximumBytes && itr.hasNext()) {
+                Map.Entry<Key, BufferedImage> evicted = itr.next();
+                bytes -= evicted.getKey().getBytes() + getBytes(evicted.getValue());
+                itr.remove();
+            }
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+
+    }
+
+    private static class Key {
+
+        private final BufferedImage texture;
+        private final int lightLevel;
+        private final BufferedImage[] overlay;
+        private final BlendingModes[] overlayBlendingMode;
+        private final int hashCode;
+
+        private Key(BufferedImage texture, int lightLevel, BufferedImage[] overlay, BlendingModes[] overlayBlendingMode) {
+            this.texture = texture;
+            this.lightLevel = lightLevel;
+            this.overlay = overlay;
+            this.overlayBlendingMode = overlayBlendingMode;
+            int hashCode = System.identityHashCode(texture);
+            hashCode = hashCode * 31 + lightLevel;
+            for (int i = 0; i < overlay.length; i++) {
+                hashCode = hashCode * 31 + System.identityHashCode(overlay[i]);
+                hashCode = hashCode * 31 + overlayBlendingMode[i].hashCode();
+            }
+            this.hashCode = hashCode;
+        }
+
+        private long getBytes() {
+            long bytes = TextureCache.getBytes(texture);
+            for (BufferedImage image : overlay) {
+                bytes += TextureCache.getBytes(image);
+            }
+            return bytes;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (texture != other.texture || lightLevel != other.lightLevel || overlay.length != other.overlay.length) {
+                return false;
+            }
+            for (int i = 0; i < overlay.length; i++) {
+                if (overlay[i] != other.overlay[i] || !overlayBlendingMode[i].equals(other.overlayBlendingMode[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
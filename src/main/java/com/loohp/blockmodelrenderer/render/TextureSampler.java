@@ -0,0 +1,153 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import com.loohp.blockmodelrenderer.utils.ColorUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+class TextureSampler {
+
+    private static final Map<int[], int[][]> MIPMAPS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public static int getMipmapLevel(double textureXPerPixel, double textureYPerPixel, int width, int height) {
+        double texelsPerPixel = Math.max(textureXPerPixel, textureYPerPixel);
+        if (!(texelsPerPixel >= 2.0)) {
+            return 0;
+        }
+        int level = 31 - Integer.numberOfLeadingZeros((int) Math.min(Integer.MAX_VALUE, texelsPerPixel));
+        int maxLevel = 32 - Integer.numberOfLeadingZeros(Math.max(width, height) - 1);
+        return Math.min(level, maxLevel);
+    }
+
+    private static int[][] getMipmaps(int[] data, int width, int height) {
+        int[][] cached = MIPMAPS.get(data);
+        if (cached != null) {
+            return cached;
+        }
+        int[][] mipmaps = buildMipmaps(data, width, height);
+        cached = MIPMAPS.putIfAbsent(data, mipmaps);
+        return cached == null ? mipmaps : cached;
+    }
+
+    private static int[][] buildMipmaps(int[] data, int width, int height) {
+        int levels = 32 - Integer.numberOfLeadingZeros(Math.max(width, height) - 1);
+        int[][] mipmaps = new int[levels][];
+        int[] previous = data;
+        int previousWidth = width;
+        int previousHeight = height;
+        for (int level = 0; level < levels; level++) {
+            int levelWidth = (previousWidth + 1) / 2;
+            int levelHeight = (previousHeight + 1) / 2;
+            int[] current = new int[levelWidth * levelHeight];
+            for (int y = 0; y < levelHeight; y++) {
+                int y1 = y * 2 * previousWidth;
+                int y2 = Math.min(y * 2 + 1, previousHeight - 1) * previousWidth;
+                for (int x = 0; x < levelWidth; x++) {
+                    int x1 = x * 2;
+                    int x2 = Math.min(x * 2 + 1, previousWidth - 1);
+                    current[y * levelWidth + x] = average(previous[y1 + x1], previous[y1 + x2], previous[y2 + x1], previous[y2 + x2]);
+                }
+            }
+            mipmaps[level] = current;
+            previous = current;
+            previousWidth = levelWidth;
+            previousHeight = levelHeight;
+        }
+        return mipmaps;
+    }
+
+    private static int average(int color1, int color2, int color3, int color4) {
+        return blend(color1, color2, color3, color4, 0.25, 0.25, 0.25, 0.25);
+    }
+
+    private static int blend(int color1, int color2, int color3, int color4, double weight1, double weight2, double weight3, double weight4) {
+        if (color1 == color2 && color1 == color3 && color1 == color4) {
+            return color1;
+        }
+        double alpha1 = ColorUtils.getAlpha(color1) * weight1;
+        double alpha2 = ColorUtils.getAlpha(color2) * weight2;
+        double alpha3 = ColorUtils.getAlpha(color3) * weight3;
+        double alpha4 = ColorUtils.getAlpha(color4) * weight4;
+        double alpha = alpha1 + alpha2 + alpha3 + alpha4;
+        if (alpha <= 0.0) {
+            return 0;
+        }
+        int red = (int) Math.round((ColorUtils.getRed(color1) * alpha1 + ColorUtils.getRed(color2) * alpha2 + ColorUtils.getRed(color3) * alpha3 + ColorUtils.getRed(color4) * alpha4) / alpha);
+        int green = (int) Math.round((ColorUtils.getGreen(color1) * alpha1 + ColorUtils.getGreen(color2) * alpha2 + ColorUtils.getGreen(color3) * alpha3 + ColorUtils.getGreen(color4) * alpha4) / alpha);
+        int blue = (int) Math.round((ColorUtils.getBlue(color1) * alpha1 + ColorUtils.getBlue(color2) * alpha2 + ColorUtils.getBlue(color3) * alpha3 + ColorUtils.getBlue(color4) * alpha4) / alpha);
+        return ColorUtils.getIntFromColor(Math.min(255, red), Math.min(255, green), Math.min(255, blue), Math.min(255, (int) Math.round(alpha)));
+    }
+
+    private final int[] data;
+    private final int width;
+    private final int height;
+    private final int level;
+    private final double scale;
+    private final TextureFilter filter;
+    private final boolean bilinear;
+
+    TextureSampler(int[] data, int width, int height, int level, TextureFilter filter) {
+        if (level > 0) {
+            this.data = getMipmaps(data, width, height)[level - 1];
+            this.width = ((width - 1) >> level) + 1;
+            this.height = ((height - 1) >> level) + 1;
+        } else {
+            this.data = data;
+            this.width = width;
+            this.height = height;
+        }
+        this.level = level;
+        this.scale = 1.0 / (1 << level);
+        this.filter = filter;
+        this.bilinear = filter == TextureFilter.BILINEAR;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public TextureFilter getFilter() {
+        return filter;
+    }
+
+    public int sample(double textureX, double textureY) {
+        if (!bilinear) {
+            return data[((int) textureX >> level) + ((int) textureY >> level) * width];
+        }
+        double u = textureX * scale - 0.5;
+        double v = textureY * scale - 0.5;
+        int u1 = (int) Math.floor(u);
+        int v1 = (int) Math.floor(v);
+        double fractionU = u - u1;
+        double fractionV = v - v1;
+        int u2 = Math.min(width - 1, u1 + 1);
+        int v2 = Math.min(height - 1, v1 + 1);
+        u1 = Math.max(0, u1);
+        v1 = Math.max(0, v1);
+        int row1 = v1 * width;
+        int row2 = v2 * width;
+        return blend(data[row1 + u1], data[row1 + u2], data[row2 + u1], data[row2 + u2], (1 - fractionU) * (1 - fractionV), fractionU * (1 - fractionV), (1 - fractionU) * fractionV, fractionU * fractionV);
+    }
+
+}
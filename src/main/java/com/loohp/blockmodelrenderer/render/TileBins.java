@@ -0,0 +1,126 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import java.util.List;
+
+class TileBins {
+
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+    private final int[] offsets;
+    private final int[] faceIndices;
+    private final int[] faceTileCounts;
+
+    TileBins(List<BakeResult> bakes, Rasterizer rasterizer, int width, int height, int tileSize) {
+        this(bakes, rasterizer, 0, 0, width, height, tileSize);
+    }
+
+    TileBins(List<BakeResult> bakes, Rasterizer rasterizer, int originX, int originY, int endX, int endY, int tileSize) {
+        this.tileSize = tileSize;
+        this.columns = (endX - originX + tileSize - 1) / tileSize;
+        this.rows = (endY - originY + tileSize - 1) / tileSize;
+        int faceCount = bakes.size();
+        int[] bounds = new int[faceCount * 4];
+        int[] counts = new int[columns * rows + 1];
+        this.faceTileCounts = new int[faceCount];
+        for (int i = 0; i < faceCount; i++) {
+            BakeResult bake = bakes.get(i);
+            int minX = Math.max(originX, rasterizer.getPixelMinX(bake)) - originX;
+            int maxX = Math.min(endX - 1, rasterizer.getPixelMaxX(bake)) - originX;
+            int minY = Math.max(originY, rasterizer.getPixelMinY(bake)) - originY;
+            int maxY = Math.min(endY - 1, rasterizer.getPixelMaxY(bake)) - originY;
+            if (minX > maxX || minY > maxY) {
+                bounds[i * 4] = 1;
+                bounds[i * 4 + 1] = 0;
+                bounds[i * 4 + 2] = 1;
+                bounds[i * 4 + 3] = 0;
+                continue;
+            }
+            int minColumn = minX / tileSize;
+            int maxColumn = maxX / tileSize;
+            int minRow = minY / tileSize;
+            int maxRow = maxY / tileSize;
+            bounds[i * 4] = minColumn;
+            bounds[i * 4 + 1] = maxColumn;
+            bounds[i * 4 + 2] = minRow;
+            bounds[i * 4 + 3] = maxRow;
+            faceTileCounts[i] = (maxColumn - minColumn + 1) * (maxRow - minRow + 1);
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    counts[row * columns + column + 1]++;
+                }
+            }
+        }
+        this.offsets = new int[counts.length];
+        for (int i = 1; i < counts.length; i++) {
+            offsets[i] = offsets[i - 1] + counts[i];
+        }
+        this.faceIndices = new int[offsets[offsets.length - 1]];
+        int[] positions = new int[columns * rows];
+        System.arraycopy(offsets, 0, positions, 0, positions.length);
+        for (int i = 0; i < faceCount; i++) {
+            for (int row = bounds[i * 4 + 2]; row <= bounds[i * 4 + 3]; row++) {
+                for (int column = bounds[i * 4]; column <= bounds[i * 4 + 1]; column++) {
+                    faceIndices[positions[row * columns + column]++] = i;
+                }
+            }
+        }
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getTileCount() {
+        return columns * rows;
+    }
+
+    public int getStart(int tile) {
+        return offsets[tile];
+    }
+
+    public int getEnd(int tile) {
+        return offsets[tile + 1];
+    }
+
+    public boolean isEmpty(int tile) {
+        return offsets[tile] == offsets[tile + 1];
+    }
+
+    public int[] getFaceIndices() {
+        return faceIndices;
+    }
+
+    public int[] getFaceTileCounts() {
+        return faceTileCounts;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.render;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Renders a model at a list of view rotations without modifying it.
+ * Each view is rendered as if the model had been copied and rotated with {@link Model#rotate(double, double, double, boolean)}
+ * without saving the axes. The model is posed into a single working copy sharing its textures, so prepared texel data is
+ * reused across views, and faces are re-sorted starting from the depth order of the previous view.
+ * All views are baked on the calling thread and rasterized together as one job.
+ */
+public class TurntableRenderer {
+
+    private final Model model;
+    private final List<double[]> rotations;
+    private Vector lightDirection;
+    private double ambient;
+    private double max;
+
+    public TurntableRenderer(Model model) {
+        this.model = model;
+        this.rotations = new ArrayList<>();
+        this.lightDirection = null;
+        this.ambient = 0;
+        this.max = 1;
+    }
+
+    public TurntableRenderer addRotation(double x, double y, double z) {
+        rotations.add(new double[] {x, y, z});
+        return this;
+    }
+
+    /**
+     * Adds frames evenly spaced around a full turn about the vertical axis, tilted by the x rotation.
+     */
+    public TurntableRenderer addSpin(int frames, double x, double startY) {
+        if (frames <= 0) {
+            throw new IllegalArgumentException("frames must be positive");
+        }
+        for (int i = 0; i < frames; i++) {
+            addRotation(x, startY + 360.0 * i / frames, 0);
+        }
+        return this;
+    }
+
+    public int size() {
+        return rotations.size();
+    }
+
+    /**
+     * Sets the lighting applied to every view after it has been rotated, or null to keep the light ratios of the model.
+     */
+    public TurntableRenderer setLighting(Vector direction, double ambient, double max) {
+        this.lightDirection = direction;
+        this.ambient = ambient;
+        this.max = max;
+        return this;
+    }
+
+    public List<BufferedImage> render(int width, int height, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        List<BufferedImage> images = new ArrayList<>(rotations.size());
+        List<RenderTarget> targets = new ArrayList<>(rotations.size());
+        for (int i = 0; i < rotations.size(); i++) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            images.add(image);
+            targets.add(new RenderTarget(image, false));
+        }
+        try {
+            renderAsync(targets, baseTransform, options, service).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+        return images;
+    }
+
+    public CompletableFuture<Void> renderAsync(List<RenderTarget> targets, AffineTransform baseTransform, RenderOptions options, ExecutorService service) {
+        if (targets.size() != rotations.size()) {
+            throw new IllegalArgumentException("Expected " + rotations.size() + " render targets but got " + targets.size());
+        }
+        return RenderFuture.schedule(() -> createScheduler(targets, baseTransform, options), options, service, null);
+    }
+
+    private RenderScheduler createScheduler(List<RenderTarget> targets, AffineTransform baseTransform, RenderOptions options) {
+        List<RenderScheduler> schedulers = new ArrayList<>(rotations.size());
+        Model view = model.createView();
+        List<Face> faces = getFaces(model);
+        List<Face> viewFaces = getFaces(view);
+        for (int i = 0; i < rotations.size(); i++) {
+            double[] rotation = rotations.get(i);
+            for (int u = 0; u < faces.size(); u++) {
+                viewFaces.get(u).copyPosition(faces.get(u));
+            }
+            view.rotate(rotation[0], rotation[1], rotation[2], false);
+            if (lightDirection != null) {
+                view.updateLighting(lightDirection, ambient, max);
+            }
+            schedulers.add(view.createScheduler(targets.get(i), baseTransform, options));
+        }
+        return RenderScheduler.combine(schedulers);
+    }
+
+    private static List<Face> getFaces(Model model) {
+        List<Face> faces = new ArrayList<>();
+        for (Hexahedron hexahedron : model.getComponents()) {
+            faces.addAll(hexahedron.getByDirectionOrder());
+        }
+        return faces;
+    }
+
+}
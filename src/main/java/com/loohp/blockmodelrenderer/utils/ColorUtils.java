@@ -36,6 +36,25 @@ public class ColorUtils {
         return composite(srcColor, desColor, blendingModes.getSrcColorComposite(), blendingModes.getDesColorComposite(), blendingModes.getSrcAlphaComposite(), blendingModes.getDesAlphaComposite());
     }
 
+    public static int composite(int srcColor, int desColor, BlendingModes blendingModes, double coverage) {
+        if (coverage >= 1.0) {
+            return composite(srcColor, desColor, blendingModes);
+        }
+        if (coverage <= 0.0) {
+            return desColor;
+        }
+        return interpolate(desColor, composite(srcColor, desColor, blendingModes), coverage);
+    }
+
+    public static int interpolate(int fromColor, int toColor, double factor) {
+        double fromFactor = 1.0 - factor;
+        int red = (int) Math.round(getRed(fromColor) * fromFactor + getRed(toColor) * factor);
+        int green = (int) Math.round(getGreen(fromColor) * fromFactor + getGreen(toColor) * factor);
+        int blue = (int) Math.round(getBlue(fromColor) * fromFactor + getBlue(toColor) * factor);
+        int alpha = (int) Math.round(getAlpha(fromColor) * fromFactor + getAlpha(toColor) * factor);
+        return getIntFromColor(red, green, blue, alpha);
+    }
+
     private static int compositeNormal(int srcColor, int desColor) {
         double srcAlphaFactor = getAlpha(srcColor) / 255.0;
         double desFactor = 1.0 - srcAlphaFactor;
@@ -0,0 +1,180 @@
+/*
+ * This file is part of BlockModelRenderer.
+ *
+ * Copyright (C) 2022. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2022. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.blockmodelrenderer.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Fast non-cryptographic hashing of raster data, based on MurmurHash3 x64 128.
+ * Image hashes are memoized by image identity, an image must not be modified after it has been hashed
+ * unless {@link #invalidate(BufferedImage)} is called.
+ */
+public class HashUtils {
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private static final Map<BufferedImage, long[]> IMAGE_HASHES = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final ThreadLocal<int[]> ROW_BUFFER = ThreadLocal.withInitial(() -> new int[0]);
+
+    public static long hash64(int[] data) {
+        return hash64(data, 0, data.length, 0);
+    }
+
+    public static long hash64(int[] data, int offset, int length, long seed) {
+        return hash128(data, offset, length, seed, seed, null);
+    }
+
+    /**
+     * Writes the 128 bit hash of the data into the first two elements of result.
+     */
+    public static void hash128(int[] data, int offset, int length, long seed, long[] result) {
+        hash128(data, offset, length, seed, seed, result);
+    }
+
+    public static long hash64(BufferedImage image) {
+        return getImageHash(image)[0];
+    }
+
+    public static void hash128(BufferedImage image, long[] result) {
+        long[] hash = getImageHash(image);
+        result[0] = hash[0];
+        result[1] = hash[1];
+    }
+
+    public static void invalidate(BufferedImage image) {
+        IMAGE_HASHES.remove(image);
+    }
+
+    public static long mix(long hash, long value) {
+        return Long.rotateLeft(hash ^ (value * 0x9E3779B97F4A7C15L), 27) * 5 + 0x52DCE729;
+    }
+
+    public static long fmix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long[] getImageHash(BufferedImage image) {
+        long[] cached = IMAGE_HASHES.get(image);
+        if (cached != null) {
+            return cached;
+        }
+        long[] hash = new long[2];
+        computeImageHash(image, hash);
+        cached = IMAGE_HASHES.putIfAbsent(image, hash);
+        return cached == null ? hash : cached;
+    }
+
+    private static void computeImageHash(BufferedImage image, long[] result) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long h1 = mix(width, height);
+        long h2 = mix(height, width);
+        if (ImageUtils.hasContiguousIntArgbData(image)) {
+            int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            for (int y = 0; y < height; y++) {
+                h1 = hash128(data, y * width, width, h1, h2, result);
+                h2 = result[1];
+            }
+        } else {
+            int[] row = ROW_BUFFER.get();
+            if (row.length < width) {
+                row = new int[width];
+                ROW_BUFFER.set(row);
+            }
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                h1 = hash128(row, 0, width, h1, h2, result);
+                h2 = result[1];
+            }
+        }
+        result[0] = h1;
+        result[1] = h2;
+    }
+
+    private static long hash128(int[] data, int offset, int length, long seed1, long seed2, long[] result) {
+        long h1 = seed1;
+        long h2 = seed2;
+        int end = offset + (length & ~3);
+        for (int i = offset; i < end; i += 4) {
+            long k1 = (data[i] & 0xFFFFFFFFL) | ((long) data[i + 1] << 32);
+            long k2 = (data[i + 2] & 0xFFFFFFFFL) | ((long) data[i + 3] << 32);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52DCE729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495AB5;
+        }
+
+        int tail = length & 3;
+        if (tail == 3) {
+            long k2 = data[end + 2] & 0xFFFFFFFFL;
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        if (tail > 0) {
+            long k1 = tail >= 2 ? (long) data[end + 1] << 32 : 0;
+            k1 |= data[end] & 0xFFFFFFFFL;
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        h1 ^= length * 4L;
+        h2 ^= length * 4L;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+
+        if (result != null) {
+            result[0] = h1;
+            result[1] = h2;
+        }
+        return h1;
+    }
+
+}
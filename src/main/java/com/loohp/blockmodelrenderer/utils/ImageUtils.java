@@ -26,10 +26,12 @@ import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
 import java.awt.GraphicsEnvironment;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -46,6 +48,10 @@ public class ImageUtils {
     public static final Color TEXT_BACKGROUND_COLOR = new Color(0, 0, 0, 180);
     public static final double CHAT_COLOR_BACKGROUND_FACTOR = 0.19;
 
+    /**
+     * @deprecated allocates a string with every pixel of the image, use {@link HashUtils#hash64(BufferedImage)} instead
+     */
+    @Deprecated
     public static String hash(BufferedImage image) {
         StringBuilder sb = new StringBuilder();
         int[] colors = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
@@ -55,6 +61,36 @@ public class ImageUtils {
         return sb.toString();
     }
 
+    public static boolean hasContiguousIntArgbData(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB) {
+            return false;
+        }
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        if (!(dataBuffer instanceof DataBufferInt) || dataBuffer.getOffset() != 0) {
+            return false;
+        }
+        if (!(image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+            return false;
+        }
+        SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) image.getRaster().getSampleModel();
+        return sampleModel.getScanlineStride() == image.getWidth() && ((DataBufferInt) dataBuffer).getData().length == image.getWidth() * image.getHeight();
+    }
+
+    public static boolean isOpaque(BufferedImage image) {
+        if (image.getColorModel().getTransparency() == Transparency.OPAQUE) {
+            return true;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] colors = image.getRGB(0, 0, width, height, null, 0, width);
+        for (int color : colors) {
+            if (getAlpha(color) < 255) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static BufferedImage toCompatibleImage(BufferedImage image) {
         try {
             GraphicsConfiguration gfxConfig = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();